@@ -0,0 +1,184 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.entity.LookupType;
+import com.example.userservice.entity.User;
+import com.example.userservice.repository.UserKeyView;
+import com.example.userservice.repository.UserRepository;
+import com.example.userservice.service.UserExistenceFilter;
+import com.example.userservice.service.UsernameSearchIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 缓存失效总线的公共部分：本节点失效时机、事务提交后广播、收到事件后的失效处理
+ */
+@Slf4j
+public abstract class AbstractCacheInvalidationBus implements CacheInvalidationBus {
+
+    private static final int RANGE_BATCH_SIZE = 1000;
+
+    /**
+     * 本节点标识，每次启动重新生成
+     */
+    protected final String nodeId = UUID.randomUUID().toString();
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private PermissionCache permissionCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserExistenceFilter userExistenceFilter;
+
+    @Autowired
+    private UsernameSearchIndex usernameSearchIndex;
+
+    @Autowired(required = false)
+    protected MeterRegistry meterRegistry;
+
+    @Override
+    public void publish(CacheInvalidationEvent.Type type, Long userId) {
+        if (userId == null) {
+            return;
+        }
+        CacheInvalidationEvent event = new CacheInvalidationEvent(type, userId, nodeId);
+        evict(event);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    // 提交前可能已被并发读回填旧值，结束后再失效一次
+                    evict(event);
+                    if (status == STATUS_COMMITTED) {
+                        broadcast(event);
+                    }
+                }
+            });
+        } else {
+            broadcast(event);
+        }
+        countPublished(type);
+    }
+
+    @Override
+    public void publishRange(Long fromUserId, Long toUserId) {
+        if (fromUserId == null || toUserId == null || fromUserId > toUserId) {
+            return;
+        }
+        broadcast(new CacheInvalidationEvent(fromUserId, toUserId, nodeId));
+        countPublished(CacheInvalidationEvent.Type.USER_RANGE);
+    }
+
+    private void countPublished(CacheInvalidationEvent.Type type) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("cache.invalidation.published", "type", type.name().toLowerCase()).increment();
+        }
+    }
+
+    /**
+     * 将事件发送给其他节点，不得抛出异常
+     */
+    protected abstract void broadcast(CacheInvalidationEvent event);
+
+    /**
+     * 处理收到的失效事件
+     */
+    protected void receive(CacheInvalidationEvent event) {
+        if (event.getType() == null || event.getUserId() == null
+                || (event.getType() == CacheInvalidationEvent.Type.USER_RANGE && event.getToUserId() == null)) {
+            log.warn("忽略无效的缓存失效事件: {}", event);
+            return;
+        }
+        evict(event);
+        // 本节点的写入已直接更新布隆过滤器和搜索索引
+        if (!nodeId.equals(event.getOrigin())) {
+            if (event.getType() == CacheInvalidationEvent.Type.USER) {
+                syncRemoteUser(event.getUserId());
+            } else if (event.getType() == CacheInvalidationEvent.Type.USER_RANGE) {
+                syncRemoteUsers(event.getUserId(), event.getToUserId());
+            }
+        }
+        if (meterRegistry != null) {
+            meterRegistry.counter("cache.invalidation.received", "type", event.getType().name().toLowerCase()).increment();
+        }
+    }
+
+    /**
+     * 其他节点注册、导入或修改了用户：按ID加载一次，把新的查找键加入本节点的布隆过滤器并更新搜索索引
+     * 旧值不从过滤器移除，只会多一次误判
+     */
+    private void syncRemoteUser(Long userId) {
+        if (!userExistenceFilter.isEnabled() && !usernameSearchIndex.isEnabled()) {
+            return;
+        }
+        try {
+            Optional<User> user = userRepository.findActiveUserById(userId);
+            user.ifPresent(u -> {
+                userExistenceFilter.add(LookupType.USERNAME, u.getUsername());
+                userExistenceFilter.add(LookupType.EMAIL, u.getEmail());
+                userExistenceFilter.add(LookupType.PHONE, u.getPhone());
+            });
+            usernameSearchIndex.refresh(userId, user.orElse(null));
+        } catch (Exception e) {
+            log.warn("同步其他节点的用户变更失败，等待定期重建: userId={}, error={}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * 其他节点批量导入了一段ID范围内的用户：按ID顺序分批加载，把查找键加入布隆过滤器和搜索索引
+     * 范围内其他节点同期注册的用户也会被加载，重复加入不影响结果
+     */
+    private void syncRemoteUsers(Long fromUserId, Long toUserId) {
+        if (!userExistenceFilter.isEnabled() && !usernameSearchIndex.isEnabled()) {
+            return;
+        }
+        try {
+            long lastUserId = fromUserId - 1;
+            boolean more;
+            do {
+                List<UserKeyView> batch = userRepository.findActiveUserKeysAfter(lastUserId, PageRequest.of(0, RANGE_BATCH_SIZE));
+                List<UserKeyView> inRange = new ArrayList<>(batch.size());
+                for (UserKeyView key : batch) {
+                    if (key.getUserId() > toUserId) {
+                        break;
+                    }
+                    userExistenceFilter.add(LookupType.USERNAME, key.getUsername());
+                    userExistenceFilter.add(LookupType.EMAIL, key.getEmail());
+                    userExistenceFilter.add(LookupType.PHONE, key.getPhone());
+                    inRange.add(key);
+                    lastUserId = key.getUserId();
+                }
+                usernameSearchIndex.addKeys(inRange);
+                more = batch.size() == RANGE_BATCH_SIZE && inRange.size() == batch.size();
+            } while (more);
+        } catch (Exception e) {
+            log.warn("同步其他节点导入的用户失败，等待定期重建: userId={}~{}, error={}", fromUserId, toUserId, e.getMessage());
+        }
+    }
+
+    private void evict(CacheInvalidationEvent event) {
+        switch (event.getType()) {
+            case USER:
+                userCache.invalidate(event.getUserId());
+                break;
+            case PERMISSION:
+                permissionCache.invalidate(event.getUserId());
+                break;
+            default:
+                break;
+        }
+    }
+}
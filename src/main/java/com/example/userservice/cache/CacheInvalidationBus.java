@@ -0,0 +1,27 @@
+package com.example.userservice.cache;
+
+/**
+ * 缓存失效总线
+ * 写操作通过总线发布按userId的失效事件，本节点立即失效，其他节点在事务提交后收到广播再失效。
+ * 实现由 cache.invalidation.transport 选择：rocketmq（广播消费）或 loopback（仅本节点，用于simple模式和测试）
+ */
+public interface CacheInvalidationBus {
+
+    /**
+     * 发布失效事件
+     * 在事务中调用时，本节点在事务结束后会再失效一次，广播在事务提交后发送；回滚时不广播
+     *
+     * @param type 缓存类型
+     * @param userId 用户ID
+     */
+    void publish(CacheInvalidationEvent.Type type, Long userId);
+
+    /**
+     * 发布一段ID范围内新增用户的事件（批量导入），代替逐个用户的USER事件，其他节点每个事件只做一次范围查询
+     * 须在新增用户的事务提交后调用
+     *
+     * @param fromUserId 起始用户ID（含）
+     * @param toUserId 结束用户ID（含）
+     */
+    void publishRange(Long fromUserId, Long toUserId);
+}
@@ -0,0 +1,62 @@
+package com.example.userservice.cache;
+
+import lombok.Data;
+
+/**
+ * 缓存失效事件
+ * 以JSON形式在各节点间广播，其他服务（如权限服务）修改数据后也可按此格式发布
+ */
+@Data
+public class CacheInvalidationEvent {
+
+    /**
+     * 失效的缓存类型
+     */
+    public enum Type {
+        /**
+         * 用户缓存（UserCache）
+         */
+        USER,
+        /**
+         * 权限缓存（PermissionCache）
+         */
+        PERMISSION,
+        /**
+         * 一段ID范围内新增的用户（批量导入），userId 为起始ID，toUserId 为结束ID（含）
+         * 新用户不在任何节点的缓存中，其他节点只需按范围加载一次，同步布隆过滤器和搜索索引
+         */
+        USER_RANGE
+    }
+
+    private Type type;
+    private Long userId;
+
+    /**
+     * USER_RANGE 事件的结束用户ID（含），其他类型为null
+     */
+    private Long toUserId;
+
+    /**
+     * 发布节点标识，节点收到自己发布的事件时跳过
+     */
+    private String origin;
+
+    /**
+     * 发布时间（毫秒），用于统计传播延迟
+     */
+    private Long timestamp;
+
+    public CacheInvalidationEvent() {}
+
+    public CacheInvalidationEvent(Type type, Long userId, String origin) {
+        this.type = type;
+        this.userId = userId;
+        this.origin = origin;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public CacheInvalidationEvent(Long fromUserId, Long toUserId, String origin) {
+        this(Type.USER_RANGE, fromUserId, origin);
+        this.toUserId = toUserId;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.entity.User;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户缓存中的只读快照
+ * 不含密码哈希，读路径只能拿到可对外展示的字段
+ */
+@Getter
+@ToString
+public class CachedUser {
+
+    private final Long userId;
+    private final String username;
+    private final String email;
+    private final String phone;
+    private final LocalDateTime gmtCreate;
+    private final LocalDateTime gmtModified;
+
+    public CachedUser(Long userId, String username, String email, String phone,
+                      LocalDateTime gmtCreate, LocalDateTime gmtModified) {
+        this.userId = userId;
+        this.username = username;
+        this.email = email;
+        this.phone = phone;
+        this.gmtCreate = gmtCreate;
+        this.gmtModified = gmtModified;
+    }
+
+    /**
+     * 由User实体生成快照
+     *
+     * @param user 用户实体
+     * @return 用户快照
+     */
+    public static CachedUser of(User user) {
+        return new CachedUser(user.getUserId(), user.getUsername(), user.getEmail(), user.getPhone(),
+                user.getGmtCreate(), user.getGmtModified());
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.userservice.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本节点内的缓存失效总线
+ * simple模式、单节点部署和测试使用，提交后的事件直接交给本节点的接收流程处理
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "loopback", matchIfMissing = true)
+public class LoopbackCacheInvalidationBus extends AbstractCacheInvalidationBus {
+
+    @Override
+    protected void broadcast(CacheInvalidationEvent event) {
+        log.debug("缓存失效事件（本节点）: type={}, userId={}", event.getType(), event.getUserId());
+        receive(event);
+    }
+}
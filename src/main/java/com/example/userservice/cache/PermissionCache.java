@@ -0,0 +1,148 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.client.PermissionRequestCollapser;
+import com.example.userservice.client.PermissionServiceClient;
+import com.example.userservice.client.UserPermissionResponse;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 用户权限缓存
+ * 位于PermissionServiceClient.getUserPermission之前，按userId缓存权限信息：
+ * <ul>
+ *     <li>同一userId并发未命中时只发起一次RPC（single-flight）</li>
+ *     <li>超过刷新间隔后先返回旧值，再在后台异步刷新（stale-while-revalidate）</li>
+ *     <li>刷新失败时保留最近一次成功的结果，直到超过最大陈旧时间才淘汰</li>
+ * </ul>
+ * 使用异步缓存：加载在执行器中进行，调用方只在Future上等待，不会在缓存内部的哈希桶锁
+ * （synchronized）中阻塞于RPC，以免在虚拟线程模式下钉住载体线程。
+ * 启用请求合并时加载直接返回合并器的Future，不占用执行器线程等待批次结果，
+ * 否则执行器线程全部阻塞在等待上时，同样排在执行器中的刷新任务将无法执行
+ */
+@Component
+@Slf4j
+public class PermissionCache {
+
+    @Autowired(required = false)
+    private PermissionServiceClient permissionServiceClient;
+
+    @Autowired
+    private PermissionRequestCollapser permissionRequestCollapser;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    @Qualifier("applicationTaskExecutor")
+    private Executor refreshExecutor;
+
+    @Value("${permission.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${permission.cache.refresh-after-seconds:30}")
+    private long refreshAfterSeconds;
+
+    @Value("${permission.cache.expire-after-seconds:600}")
+    private long expireAfterSeconds;
+
+    @Value("${permission.cache.maximum-size:100000}")
+    private long maximumSize;
+
+    private AsyncLoadingCache<Long, UserPermissionResponse> cache;
+
+    @PostConstruct
+    public void init() {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .refreshAfterWrite(Duration.ofSeconds(refreshAfterSeconds))
+                .expireAfterWrite(Duration.ofSeconds(expireAfterSeconds))
+                .executor(refreshExecutor != null ? refreshExecutor : ForkJoinPool.commonPool())
+                .recordStats()
+                .buildAsync(this::loadPermissionAsync);
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "permission.user-permissions");
+        }
+        log.info("权限缓存初始化: enabled={}, refreshAfter={}s, expireAfter={}s, maximumSize={}",
+                enabled, refreshAfterSeconds, expireAfterSeconds, maximumSize);
+    }
+
+    /**
+     * 获取用户权限
+     *
+     * @param userId 用户ID
+     * @return 用户权限信息
+     * @throws RuntimeException 无缓存值且RPC调用失败时抛出，由调用方决定降级策略
+     */
+    public UserPermissionResponse get(Long userId) {
+        if (!enabled) {
+            return loadPermission(userId);
+        }
+        try {
+            return cache.get(userId).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 使指定用户的权限缓存失效
+     *
+     * @param userId 用户ID
+     */
+    public void invalidate(Long userId) {
+        cache.synchronous().invalidate(userId);
+    }
+
+    /**
+     * 缓存的异步加载：启用请求合并时并入批量RPC，不阻塞执行器线程；否则在执行器中调用单用户RPC
+     */
+    private CompletableFuture<UserPermissionResponse> loadPermissionAsync(Long userId, Executor executor) {
+        if (permissionServiceClient == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("权限服务未配置"));
+        }
+        if (permissionRequestCollapser.isEnabled()) {
+            return permissionRequestCollapser.loadAsync(userId).thenApply(permission -> validate(userId, permission));
+        }
+        return CompletableFuture.supplyAsync(() -> validate(userId, permissionServiceClient.getUserPermission(userId)), executor);
+    }
+
+    /**
+     * 调用权限服务加载权限（缓存关闭时使用），启用请求合并时并入批量RPC
+     */
+    private UserPermissionResponse loadPermission(Long userId) {
+        if (permissionServiceClient == null) {
+            throw new IllegalStateException("权限服务未配置");
+        }
+        UserPermissionResponse permission = permissionRequestCollapser.isEnabled()
+                ? permissionRequestCollapser.load(userId)
+                : permissionServiceClient.getUserPermission(userId);
+        return validate(userId, permission);
+    }
+
+    /**
+     * 结果为空时抛出异常而不是返回null，以免后台刷新时把最近一次成功的结果清除
+     */
+    private static UserPermissionResponse validate(Long userId, UserPermissionResponse permission) {
+        if (permission == null || permission.getRoleCode() == null) {
+            throw new IllegalStateException("权限服务返回空结果: userId=" + userId);
+        }
+        return permission;
+    }
+}
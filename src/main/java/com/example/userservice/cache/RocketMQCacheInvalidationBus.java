@@ -0,0 +1,76 @@
+package com.example.userservice.cache;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.producer.SendCallback;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.spring.annotation.MessageModel;
+import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
+import org.apache.rocketmq.spring.core.RocketMQListener;
+import org.apache.rocketmq.spring.core.RocketMQTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于RocketMQ广播消费的缓存失效总线
+ * 每个节点以BROADCASTING模式订阅同一主题，所有节点都会收到每条失效事件。
+ * 广播是尽力而为的：发送失败或节点离线期间丢失的事件，由各缓存的过期时间兜底
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "rocketmq")
+@RocketMQMessageListener(
+        topic = "${cache.invalidation.topic:user-cache-invalidation}",
+        consumerGroup = "${cache.invalidation.consumer-group:user-service-cache-invalidation}",
+        messageModel = MessageModel.BROADCASTING)
+public class RocketMQCacheInvalidationBus extends AbstractCacheInvalidationBus
+        implements RocketMQListener<CacheInvalidationEvent> {
+
+    @Autowired
+    private RocketMQTemplate rocketMQTemplate;
+
+    @Value("${cache.invalidation.topic:user-cache-invalidation}")
+    private String topic;
+
+    @Value("${cache.invalidation.send-timeout-millis:3000}")
+    private long sendTimeoutMillis;
+
+    @Override
+    protected void broadcast(CacheInvalidationEvent event) {
+        try {
+            rocketMQTemplate.asyncSend(topic, event, new SendCallback() {
+                @Override
+                public void onSuccess(SendResult sendResult) {
+                    log.debug("缓存失效事件已广播: type={}, userId={}", event.getType(), event.getUserId());
+                }
+
+                @Override
+                public void onException(Throwable e) {
+                    log.warn("缓存失效事件广播失败，其他节点将在缓存过期后更新: type={}, userId={}, error={}",
+                            event.getType(), event.getUserId(), e.getMessage());
+                }
+            }, sendTimeoutMillis);
+        } catch (Exception e) {
+            log.warn("缓存失效事件广播失败，其他节点将在缓存过期后更新: type={}, userId={}, error={}",
+                    event.getType(), event.getUserId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(CacheInvalidationEvent event) {
+        if (nodeId.equals(event.getOrigin())) {
+            return;
+        }
+        if (meterRegistry != null && event.getTimestamp() != null) {
+            Timer.builder("cache.invalidation.lag")
+                    .description("缓存失效事件从发布到本节点处理的延迟")
+                    .register(meterRegistry)
+                    .record(Math.max(0, System.currentTimeMillis() - event.getTimestamp()), TimeUnit.MILLISECONDS);
+        }
+        receive(event);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 未删除用户的本地读缓存
+ * 位于UserRepository.findActiveUserById之前，按userId缓存不含密码的用户快照：
+ * <ul>
+ *     <li>按条数上限和写入后过期时间淘汰，过期时间同时限制了其他节点写入后本节点的最长陈旧时间</li>
+ *     <li>用户不存在（或已删除）的结果不缓存</li>
+ * </ul>
+ * 写操作经由 {@link CacheInvalidationBus} 失效本节点和其他节点的条目
+ * 与权限缓存一样使用异步缓存，加载时的数据库查询不在缓存内部的哈希桶锁中执行
+ */
+@Component
+@Slf4j
+public class UserCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    @Qualifier("applicationTaskExecutor")
+    private Executor loadExecutor;
+
+    @Value("${user.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${user.cache.maximum-size:100000}")
+    private long maximumSize;
+
+    @Value("${user.cache.expire-after-seconds:300}")
+    private long expireAfterSeconds;
+
+    private AsyncLoadingCache<Long, CachedUser> cache;
+
+    @PostConstruct
+    public void init() {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterSeconds))
+                .executor(loadExecutor != null ? loadExecutor : ForkJoinPool.commonPool())
+                .recordStats()
+                .buildAsync(this::load);
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "user.users");
+        }
+        log.info("用户缓存初始化: enabled={}, expireAfter={}s, maximumSize={}",
+                enabled, expireAfterSeconds, maximumSize);
+    }
+
+    /**
+     * 查询未删除的用户，未命中时从数据库加载
+     *
+     * @param userId 用户ID
+     * @return 用户快照，用户不存在或已删除时为空
+     */
+    public Optional<CachedUser> get(Long userId) {
+        if (!enabled) {
+            return Optional.ofNullable(load(userId));
+        }
+        try {
+            return Optional.ofNullable(cache.get(userId).join());
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 只查询缓存中已加载完成的用户，不访问数据库
+     *
+     * @param userId 用户ID
+     * @return 用户快照，未缓存时为空
+     */
+    public Optional<CachedUser> getIfPresent(Long userId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        CompletableFuture<CachedUser> future = cache.getIfPresent(userId);
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(future.join());
+    }
+
+    /**
+     * 使本节点上指定用户的缓存失效
+     * 写操作应通过 {@link CacheInvalidationBus} 发布，而不是直接调用
+     *
+     * @param userId 用户ID
+     */
+    public void invalidate(Long userId) {
+        if (enabled && userId != null) {
+            cache.synchronous().invalidate(userId);
+        }
+    }
+
+    private CachedUser load(Long userId) {
+        return userRepository.findActiveUserById(userId).map(CachedUser::of).orElse(null);
+    }
+}
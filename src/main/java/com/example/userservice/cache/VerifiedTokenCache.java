@@ -0,0 +1,134 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.util.JwtPrincipal;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已验证令牌缓存
+ * 以令牌的SHA-256摘要为键缓存验签结果，条目在令牌自身的exp时刻过期，
+ * 同一令牌重复请求时可跳过HMAC验签和JSON解析
+ */
+@Component
+@Slf4j
+public class VerifiedTokenCache {
+
+    @Value("${jwt.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${jwt.cache.maximum-size:100000}")
+    private long maximumSize;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, JwtPrincipal> cache;
+
+    @PostConstruct
+    public void init() {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified-tokens");
+        }
+        log.info("已验证令牌缓存初始化: enabled={}, maximumSize={}", enabled, maximumSize);
+    }
+
+    /**
+     * 查询已验证的令牌
+     *
+     * @param token JWT令牌
+     * @return 主体信息，未命中或已过期时返回null
+     */
+    public JwtPrincipal get(String token) {
+        if (!enabled) {
+            return null;
+        }
+        String key = digest(token);
+        JwtPrincipal principal = cache.getIfPresent(key);
+        if (principal != null && principal.isExpiredAt(System.currentTimeMillis())) {
+            cache.invalidate(key);
+            return null;
+        }
+        return principal;
+    }
+
+    /**
+     * 缓存已验证的令牌
+     *
+     * @param token JWT令牌
+     * @param principal 验签得到的主体信息
+     */
+    public void put(String token, JwtPrincipal principal) {
+        if (!enabled || principal.isExpiredAt(System.currentTimeMillis())) {
+            return;
+        }
+        cache.put(digest(token), principal);
+    }
+
+    /**
+     * 命中次数
+     */
+    public long hitCount() {
+        return cache.stats().hitCount();
+    }
+
+    /**
+     * 未命中次数
+     */
+    public long missCount() {
+        return cache.stats().missCount();
+    }
+
+    /**
+     * 计算令牌摘要，避免以原始令牌作为键常驻内存
+     */
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    /**
+     * 按令牌exp计算条目存活时间
+     */
+    private static class TokenExpiry implements Expiry<String, JwtPrincipal> {
+
+        @Override
+        public long expireAfterCreate(String key, JwtPrincipal value, long currentTime) {
+            long remainingMillis = value.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, JwtPrincipal value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, JwtPrincipal value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.userservice.client;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 权限查询请求合并器
+ * 将短时间窗口内并发到达的单用户权限查询合并为一次批量RPC，
+ * 降低流量高峰时对权限服务的QPS和Feign连接开销，单次查询最多额外等待一个窗口。
+ * 批量RPC在专用线程池中执行：等待批次结果的调用方（如权限缓存的加载）可能占满共享线程池，
+ * 派发若与其共用线程池会因排不上队而互相等待
+ */
+@Component
+@Slf4j
+public class PermissionRequestCollapser {
+
+    @Autowired(required = false)
+    private PermissionServiceClient permissionServiceClient;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${permission.collapser.enabled:true}")
+    private boolean enabled;
+
+    @Value("${permission.collapser.window-millis:2}")
+    private long windowMillis;
+
+    @Value("${permission.collapser.max-batch-size:100}")
+    private int maxBatchSize;
+
+    @Value("${permission.collapser.timeout-millis:6000}")
+    private long timeoutMillis;
+
+    @Value("${permission.collapser.dispatch-threads:4}")
+    private int dispatchThreads;
+
+    /**
+     * 等待合并的查询，同一userId在窗口内只查询一次
+     */
+    private final Map<Long, CompletableFuture<UserPermissionResponse>> pending = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private ScheduledExecutorService timer;
+
+    private ExecutorService dispatchExecutor;
+
+    private DistributionSummary batchSizeSummary;
+
+    @PostConstruct
+    public void init() {
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "permission-collapser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger dispatchThreadCount = new AtomicInteger();
+        this.dispatchExecutor = Executors.newFixedThreadPool(Math.max(dispatchThreads, 1), runnable -> {
+            Thread thread = new Thread(runnable, "permission-collapser-dispatch-" + dispatchThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (meterRegistry != null) {
+            batchSizeSummary = DistributionSummary.builder("permission.collapser.batch.size")
+                    .description("合并后每次批量RPC包含的用户数")
+                    .register(meterRegistry);
+        }
+        log.info("权限查询合并器初始化: enabled={}, windowMillis={}, maxBatchSize={}", enabled, windowMillis, maxBatchSize);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        timer.shutdownNow();
+        dispatchExecutor.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled && permissionServiceClient != null;
+    }
+
+    /**
+     * 查询用户权限（阻塞等待所在批次返回）
+     *
+     * @param userId 用户ID
+     * @return 用户权限信息
+     */
+    public UserPermissionResponse load(Long userId) {
+        try {
+            return submit(userId).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("批量获取用户权限失败: userId=" + userId, cause);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("批量获取用户权限超时: userId=" + userId, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("批量获取用户权限被中断: userId=" + userId, e);
+        }
+    }
+
+    /**
+     * 查询用户权限（不阻塞调用线程），超时后以IllegalStateException结束
+     * 超时只作用于返回的副本，不影响同一批次中其他调用方共享的Future
+     *
+     * @param userId 用户ID
+     * @return 查询结果
+     */
+    public CompletableFuture<UserPermissionResponse> loadAsync(Long userId) {
+        return submit(userId).copy()
+                .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .exceptionallyCompose(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof TimeoutException) {
+                        return CompletableFuture.failedFuture(
+                                new IllegalStateException("批量获取用户权限超时: userId=" + userId, cause));
+                    }
+                    return CompletableFuture.failedFuture(cause);
+                });
+    }
+
+    /**
+     * 提交查询，加入当前窗口的批次
+     *
+     * @param userId 用户ID
+     * @return 查询结果
+     */
+    public CompletableFuture<UserPermissionResponse> submit(Long userId) {
+        CompletableFuture<UserPermissionResponse> future = pending.computeIfAbsent(userId, id -> new CompletableFuture<>());
+        if (pending.size() >= maxBatchSize) {
+            timer.execute(this::flush);
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            timer.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    /**
+     * 取出当前窗口内的查询并派发批量RPC
+     * 先复位调度标记再取数据，保证之后加入的查询一定会触发新的调度
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        while (!pending.isEmpty()) {
+            Map<Long, CompletableFuture<UserPermissionResponse>> batch = new HashMap<>();
+            for (Long userId : pending.keySet()) {
+                if (batch.size() >= maxBatchSize) {
+                    break;
+                }
+                CompletableFuture<UserPermissionResponse> future = pending.remove(userId);
+                if (future != null) {
+                    batch.put(userId, future);
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            dispatchExecutor.execute(() -> dispatch(batch));
+        }
+    }
+
+    private void dispatch(Map<Long, CompletableFuture<UserPermissionResponse>> batch) {
+        try {
+            List<UserPermissionResponse> responses = permissionServiceClient.getUserPermissions(new ArrayList<>(batch.keySet()));
+            Map<Long, UserPermissionResponse> byUserId = new HashMap<>();
+            if (responses != null) {
+                for (UserPermissionResponse response : responses) {
+                    if (response != null && response.getUserId() != null) {
+                        byUserId.put(response.getUserId(), response);
+                    }
+                }
+            }
+            batch.forEach((userId, future) -> {
+                UserPermissionResponse response = byUserId.get(userId);
+                if (response != null) {
+                    future.complete(response);
+                } else {
+                    future.completeExceptionally(new IllegalStateException("权限服务未返回用户权限: userId=" + userId));
+                }
+            });
+            if (batchSizeSummary != null) {
+                batchSizeSummary.record(batch.size());
+            }
+        } catch (Exception e) {
+            log.error("批量获取用户权限失败: size={}", batch.size(), e);
+            batch.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+}
@@ -4,6 +4,8 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * 权限服务RPC客户端
  * 通过Feign调用权限服务的接口
@@ -21,6 +23,15 @@ public interface PermissionServiceClient {
     @PostMapping("/permission/bind-default-role")
     BindRoleResponse bindDefaultRole(@RequestParam("userId") Long userId);
 
+    /**
+     * 为一批用户绑定默认角色（批量导入使用）
+     *
+     * @param userIds 用户ID列表
+     * @return 绑定结果，全部成功时success为true
+     */
+    @PostMapping("/permission/bind-default-role/batch")
+    BindRoleResponse bindDefaultRoles(@RequestBody List<Long> userIds);
+
     /**
      * 获取用户权限信息
      *
@@ -30,6 +41,15 @@ public interface PermissionServiceClient {
     @GetMapping("/permission/user/{userId}")
     UserPermissionResponse getUserPermission(@PathVariable("userId") Long userId);
 
+    /**
+     * 批量获取用户权限信息
+     *
+     * @param userIds 用户ID列表
+     * @return 用户权限信息列表（未找到的用户不返回）
+     */
+    @PostMapping("/permission/user/batch")
+    List<UserPermissionResponse> getUserPermissions(@RequestBody List<Long> userIds);
+
     /**
      * 检查用户是否有指定权限
      *
@@ -1,10 +1,12 @@
 package com.example.userservice.client;
 
 import org.springframework.stereotype.Component;
-import java.util.Arrays;
+import java.util.List;
 
 /**
  * 权限服务降级处理
+ * 权限查询降级时抛出异常而不是返回默认权限：权限缓存刷新失败时保留最近一次成功的结果，
+ * 没有缓存值时由调用方决定降级策略；返回伪造的权限会覆盖缓存中的真实权限
  */
 @Component
 public class PermissionServiceClientFallback implements PermissionServiceClient {
@@ -14,10 +16,19 @@ public class PermissionServiceClientFallback implements PermissionServiceClient
         return new BindRoleResponse(false, "权限服务暂不可用，角色绑定失败", null);
     }
 
+    @Override
+    public BindRoleResponse bindDefaultRoles(List<Long> userIds) {
+        return new BindRoleResponse(false, "权限服务暂不可用，批量角色绑定失败", null);
+    }
+
     @Override
     public UserPermissionResponse getUserPermission(Long userId) {
-        return new UserPermissionResponse(userId, "USER", "普通用户",
-                Arrays.asList("USER:READ:SELF"));
+        throw new IllegalStateException("权限服务暂不可用，获取用户权限失败: userId=" + userId);
+    }
+
+    @Override
+    public List<UserPermissionResponse> getUserPermissions(List<Long> userIds) {
+        throw new IllegalStateException("权限服务暂不可用，批量获取用户权限失败: size=" + userIds.size());
     }
 
     @Override
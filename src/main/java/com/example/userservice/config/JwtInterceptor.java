@@ -40,6 +40,8 @@
 
 package com.example.userservice.config;
 
+import com.example.userservice.cache.VerifiedTokenCache;
+import com.example.userservice.util.JwtPrincipal;
 import com.example.userservice.util.JwtUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -62,6 +64,9 @@ public class JwtInterceptor implements HandlerInterceptor {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
     private static final List<String> WHITELIST = Arrays.asList(
             "/user/register",
             "/user/login",
@@ -85,21 +90,27 @@ public class JwtInterceptor implements HandlerInterceptor {
             return false;
         }
 
-        // 验证token
+        // 验证token（优先命中已验证令牌缓存，否则一次解析完成验签与声明提取）
         token = token.substring(7);
-        if (!jwtUtil.validateToken(token)) {
-            log.warn("Token验证失败: {}", requestURI);
-            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-            return false;
+        JwtPrincipal principal = verifiedTokenCache.get(token);
+        if (principal == null) {
+            principal = jwtUtil.parseToken(token);
+            if (principal == null) {
+                log.warn("Token验证失败: {}", requestURI);
+                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                return false;
+            }
+            verifiedTokenCache.put(token, principal);
         }
 
         // 传递用户信息到请求属性中
-        request.setAttribute("userId", jwtUtil.extractUserId(token));
-        request.setAttribute("username", jwtUtil.extractUsername(token));
+        request.setAttribute(JwtPrincipal.REQUEST_ATTRIBUTE, principal);
+        request.setAttribute("userId", principal.getUserId());
+        request.setAttribute("username", principal.getUsername());
+
+        log.debug("Token验证成功: userId={}, username={}, uri={}",
+                principal.getUserId(), principal.getUsername(), requestURI);
 
-        log.debug("Token验证成功: userId={}, username={}, uri={}", 
-                jwtUtil.extractUserId(token), jwtUtil.extractUsername(token), requestURI);
-        
         return true;
     }
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.example.userservice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.DriverManager;
+
+/**
+ * 线程模式检查
+ * spring.threads.virtual.enabled 在 JDK 21 以下会被静默忽略，启动完成后输出实际生效的线程模式。
+ * 虚拟线程模式下同时检查MySQL驱动版本：Connector/J 9 以下在查库路径上使用 synchronized，会钉住载体线程
+ */
+@Component
+@Slf4j
+public class ThreadModeReporter {
+
+    private static final int VIRTUAL_THREADS_MIN_JAVA = 21;
+
+    private static final int VIRTUAL_THREADS_MIN_CONNECTOR_J = 9;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() {
+        int javaVersion = Runtime.version().feature();
+        if (!virtualThreadsEnabled) {
+            log.info("线程模式: 平台线程 (Java {})", javaVersion);
+        } else if (javaVersion < VIRTUAL_THREADS_MIN_JAVA) {
+            log.warn("已配置 spring.threads.virtual.enabled=true，但当前为 Java {}，需要 Java {}+，仍使用平台线程",
+                    javaVersion, VIRTUAL_THREADS_MIN_JAVA);
+        } else {
+            log.info("线程模式: 虚拟线程 (Java {})，Tomcat请求、applicationTaskExecutor及其上的Feign/MQ调用均运行在虚拟线程上",
+                    javaVersion);
+            DriverManager.drivers()
+                    .filter(driver -> driver.getClass().getName().startsWith("com.mysql."))
+                    .filter(driver -> driver.getMajorVersion() < VIRTUAL_THREADS_MIN_CONNECTOR_J)
+                    .findFirst()
+                    .ifPresent(driver -> log.warn("MySQL Connector/J {}.{} 在查库路径上使用 synchronized，虚拟线程查库时会钉住载体线程，" +
+                            "请以 -Pjava21 构建（Connector/J {}+）", driver.getMajorVersion(), driver.getMinorVersion(),
+                            VIRTUAL_THREADS_MIN_CONNECTOR_J));
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.example.userservice.config;
 
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -15,10 +19,39 @@ public class WebConfig implements WebMvcConfigurer {
     @Autowired
     private JwtInterceptor jwtInterceptor;
 
+    @Value("${user.export.max-concurrent:1}")
+    private int exportMaxConcurrent;
+
+    private ThreadPoolTaskExecutor exportExecutor;
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(jwtInterceptor)
                 .addPathPatterns("/user/**")
                 .excludePathPatterns("/user/register", "/user/login");
     }
-} 
\ No newline at end of file
+
+    /**
+     * MVC异步处理（目前只有用户导出的流式响应体）使用专用线程池，
+     * 长时间阻塞在数据库游标和响应输出流上的导出不占用applicationTaskExecutor。
+     * 线程池不注册为Bean，以免Spring Boot因已存在Executor而不再创建applicationTaskExecutor
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        int threads = Math.max(exportMaxConcurrent, 1);
+        exportExecutor = new ThreadPoolTaskExecutor();
+        exportExecutor.setThreadNamePrefix("user-export-");
+        exportExecutor.setCorePoolSize(threads);
+        exportExecutor.setMaxPoolSize(threads);
+        exportExecutor.setQueueCapacity(threads);
+        exportExecutor.initialize();
+        configurer.setTaskExecutor(exportExecutor);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (exportExecutor != null) {
+            exportExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.userservice.controller;
+
+import com.example.userservice.util.JwtKeyRing;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWKS控制器
+ * 发布JWT验签公钥，网关和其他服务据此在本地验证令牌，无需持有共享密钥或回调本服务
+ */
+@RestController
+public class JwksController {
+
+    @Autowired
+    private JwtKeyRing jwtKeyRing;
+
+    @Value("${jwt.jwks.max-age-seconds:300}")
+    private long maxAgeSeconds;
+
+    /**
+     * 获取JWKS
+     *
+     * @return 标准JWKS格式的公钥集合
+     */
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic())
+                .body(jwtKeyRing.getJwks());
+    }
+}
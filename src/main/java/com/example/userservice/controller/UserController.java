@@ -1,13 +1,27 @@
 package com.example.userservice.controller;
 
 import com.example.userservice.dto.*;
+import com.example.userservice.service.UserExportService;
+import com.example.userservice.service.UserImportService;
 import com.example.userservice.service.UserService;
+import com.example.userservice.util.EtagUtil;
 import com.example.userservice.util.JwtUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
  * 用户控制器
@@ -21,9 +35,27 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private UserExportService userExportService;
+
     @Autowired
     private JwtUtil jwtUtil;
 
+    /**
+     * 是否信任X-Forwarded-For（部署在网关之后时开启）
+     */
+    @Value("${login.throttle.trust-forwarded-for:false}")
+    private boolean trustForwardedFor;
+
+    /**
+     * 追加X-Forwarded-For的可信代理层数
+     */
+    @Value("${login.throttle.trusted-proxy-hops:1}")
+    private int trustedProxyHops;
+
     /**
      * 用户注册
      *
@@ -40,12 +72,14 @@ public class UserController {
      * 用户登录
      *
      * @param request 登录请求
+     * @param httpRequest HTTP请求对象
      * @return 登录结果
      */
     @PostMapping("/login")
-    public ApiResponse<UserLoginResponse> login(@Valid @RequestBody UserLoginRequest request) {
+    public ApiResponse<UserLoginResponse> login(@Valid @RequestBody UserLoginRequest request,
+                                                HttpServletRequest httpRequest) {
         log.info("用户登录请求: username={}", request.getUsername());
-        return userService.login(request);
+        return userService.login(request, getClientIp(httpRequest));
     }
 
     /**
@@ -53,13 +87,47 @@ public class UserController {
      *
      * @param page 页码（从0开始）
      * @param size 每页大小
+     * @param ifNoneMatch If-None-Match请求头
      * @param request HTTP请求对象
-     * @return 用户列表
+     * @return 用户列表，带弱ETag；与If-None-Match匹配时返回304
      */
     @GetMapping("/users")
-    public ApiResponse<PageResponse<UserInfoResponse>> getUsers(
+    public ResponseEntity<ApiResponse<PageResponse<UserInfoResponse>>> getUsers(
             @RequestParam(defaultValue = "0") Integer page,
             @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(defaultValue = "true") boolean withTotal,
+            @RequestParam(defaultValue = "false") boolean approxTotal,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletRequest request) {
+
+        Long currentUserId = getCurrentUserId(request);
+        if (currentUserId == null) {
+            return ResponseEntity.ok(ApiResponse.error(401, "未登录或token无效"));
+        }
+
+        log.info("查询用户列表: page={}, size={}, withTotal={}, approxTotal={}, currentUserId={}",
+                page, size, withTotal, approxTotal, currentUserId);
+        ApiResponse<PageResponse<UserInfoResponse>> response =
+                userService.getUsers(page, size, withTotal, approxTotal, currentUserId);
+        if (response.getData() == null) {
+            return ResponseEntity.ok(response);
+        }
+        // 仍需查库，只节省序列化和传输
+        return conditional(EtagUtil.weak(response.getData()), ifNoneMatch, response);
+    }
+
+    /**
+     * 游标分页查询用户列表
+     *
+     * @param cursor 上一页返回的游标，首页不传
+     * @param size 每页大小
+     * @param request HTTP请求对象
+     * @return 用户列表及下一页游标
+     */
+    @GetMapping("/users/cursor")
+    public ApiResponse<CursorPageResponse<UserInfoResponse>> getUsersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer size,
             HttpServletRequest request) {
 
         Long currentUserId = getCurrentUserId(request);
@@ -67,29 +135,56 @@ public class UserController {
             return ApiResponse.error(401, "未登录或token无效");
         }
 
-        log.info("查询用户列表: page={}, size={}, currentUserId={}", page, size, currentUserId);
-        return userService.getUsers(page, size, currentUserId);
+        log.info("游标查询用户列表: size={}, currentUserId={}", size, currentUserId);
+        return userService.getUsersByCursor(cursor, size, currentUserId);
     }
 
     /**
      * 根据ID查询用户信息
      *
      * @param userId 用户ID
+     * @param ifNoneMatch If-None-Match请求头
      * @param request HTTP请求对象
-     * @return 用户信息
+     * @return 用户信息，带强ETag；与If-None-Match匹配时返回304
      */
     @GetMapping("/info/{userId}")
-    public ApiResponse<UserInfoResponse> getUserById(
+    public ResponseEntity<ApiResponse<UserInfoResponse>> getUserById(
             @PathVariable Long userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
             HttpServletRequest request) {
 
         Long currentUserId = getCurrentUserId(request);
         if (currentUserId == null) {
-            return ApiResponse.error(401, "未登录或token无效");
+            return ResponseEntity.ok(ApiResponse.error(401, "未登录或token无效"));
         }
 
         log.info("查询用户信息: userId={}, currentUserId={}", userId, currentUserId);
-        return userService.getUserById(userId, currentUserId);
+        ApiResponse<UserInfoResponse> response = userService.getUserById(userId, currentUserId, ifNoneMatch);
+        if (response.getData() == null) {
+            return ResponseEntity.ok(response);
+        }
+        return conditional(EtagUtil.strong(response.getData()), ifNoneMatch, response);
+    }
+
+    /**
+     * 批量查询用户信息
+     *
+     * @param batchRequest 批量查询请求
+     * @param request HTTP请求对象
+     * @return 按请求顺序排列的用户信息
+     */
+    @PostMapping("/batch-info")
+    public ApiResponse<List<UserInfoResponse>> getUsersByIds(
+            @Valid @RequestBody BatchUserInfoRequest batchRequest,
+            HttpServletRequest request) {
+
+        Long currentUserId = getCurrentUserId(request);
+        if (currentUserId == null) {
+            return ApiResponse.error(401, "未登录或token无效");
+        }
+
+        log.info("批量查询用户信息: ids={}, currentUserId={}", batchRequest.getUserIds().size(), currentUserId);
+        return userService.getUsersByIds(batchRequest.getUserIds(), currentUserId);
     }
 
     /**
@@ -136,6 +231,139 @@ public class UserController {
         return userService.resetPassword(resetRequest, currentUserId);
     }
 
+    /**
+     * 批量导入用户（管理员）
+     * 请求体为NDJSON或CSV文件内容，密码须为已哈希的值
+     *
+     * @param format ndjson 或 csv
+     * @param request HTTP请求对象
+     * @return 导入任务进度
+     */
+    @PostMapping(value = "/admin/import", consumes = {"application/x-ndjson", "text/csv", "application/octet-stream"})
+    public ApiResponse<UserImportJobResponse> importUsers(
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletRequest request) throws IOException {
+
+        Long currentUserId = getCurrentUserId(request);
+        if (currentUserId == null) {
+            return ApiResponse.error(401, "未登录或token无效");
+        }
+
+        log.info("批量导入用户: format={}, contentLength={}, currentUserId={}",
+                format, request.getContentLengthLong(), currentUserId);
+        return userImportService.startImport(request.getInputStream(), format, currentUserId);
+    }
+
+    /**
+     * 查询批量导入任务进度（管理员）
+     *
+     * @param jobId 任务ID
+     * @param request HTTP请求对象
+     * @return 导入任务进度
+     */
+    @GetMapping("/admin/import/{jobId}")
+    public ApiResponse<UserImportJobResponse> getImportJob(
+            @PathVariable String jobId,
+            HttpServletRequest request) {
+
+        Long currentUserId = getCurrentUserId(request);
+        if (currentUserId == null) {
+            return ApiResponse.error(401, "未登录或token无效");
+        }
+
+        return userImportService.getJob(jobId, currentUserId);
+    }
+
+    /**
+     * 按用户名子串搜索用户（管理员）
+     *
+     * @param keyword 用户名关键字，至少3个字符
+     * @param page 页码
+     * @param size 每页大小
+     * @param request HTTP请求对象
+     * @return 匹配的用户，按注册时间倒序
+     */
+    @GetMapping("/admin/search")
+    public ApiResponse<PageResponse<UserInfoResponse>> searchUsers(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "0") Integer page,
+            @RequestParam(defaultValue = "10") Integer size,
+            HttpServletRequest request) {
+
+        Long currentUserId = getCurrentUserId(request);
+        if (currentUserId == null) {
+            return ApiResponse.error(401, "未登录或token无效");
+        }
+
+        log.info("搜索用户: keyword={}, page={}, size={}, currentUserId={}", keyword, page, size, currentUserId);
+        return userService.searchUsers(keyword, page, size, currentUserId);
+    }
+
+    /**
+     * 导出所有未删除用户（管理员），流式写出，不含密码
+     *
+     * @param format ndjson 或 csv
+     * @param request HTTP请求对象
+     * @return NDJSON或CSV文件；校验失败时为错误响应
+     */
+    @GetMapping("/admin/export")
+    public ResponseEntity<?> exportUsers(
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletRequest request) {
+
+        Long currentUserId = getCurrentUserId(request);
+        if (currentUserId == null) {
+            return ResponseEntity.ok(ApiResponse.error(401, "未登录或token无效"));
+        }
+
+        ApiResponse<StreamingResponseBody> response = userExportService.export(format, currentUserId);
+        if (response.getCode() != 200) {
+            return ResponseEntity.ok(response);
+        }
+        boolean csv = "csv".equalsIgnoreCase(format);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users." + (csv ? "csv" : "ndjson") + "\"")
+                .body(response.getData());
+    }
+
+    /**
+     * 带ETag返回响应，与If-None-Match匹配时返回不带响应体的304
+     * 客户端可缓存但每次使用前须重新验证
+     *
+     * @param etag 当前ETag
+     * @param ifNoneMatch If-None-Match请求头
+     * @param response 响应内容
+     * @return HTTP响应
+     */
+    private <T> ResponseEntity<ApiResponse<T>> conditional(String etag, String ifNoneMatch, ApiResponse<T> response) {
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+        if (EtagUtil.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(response);
+    }
+
+    /**
+     * 获取客户端IP
+     * 仅在服务部署于可信网关之后时才使用X-Forwarded-For：每层代理在右侧追加它看到的对端地址，
+     * 左侧的地址可由客户端任意伪造，因此取从右数第 trusted-proxy-hops 个地址（最外层可信代理看到的客户端地址）
+     *
+     * @param request HTTP请求对象
+     * @return 客户端IP
+     */
+    private String getClientIp(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwardedFor = request.getHeader("X-Forwarded-For");
+            if (forwardedFor != null && !forwardedFor.isBlank()) {
+                String[] hops = forwardedFor.split(",");
+                return hops[Math.max(hops.length - Math.max(trustedProxyHops, 1), 0)].trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
     /**
      * 从请求中获取当前用户ID
      *
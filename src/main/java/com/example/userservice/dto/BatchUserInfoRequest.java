@@ -0,0 +1,17 @@
+package com.example.userservice.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量查询用户信息请求DTO
+ */
+@Data
+public class BatchUserInfoRequest {
+
+    @NotEmpty(message = "用户ID列表不能为空")
+    private List<@NotNull(message = "用户ID不能为空") Long> userIds;
+}
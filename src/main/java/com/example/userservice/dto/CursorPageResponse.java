@@ -0,0 +1,26 @@
+package com.example.userservice.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 游标分页响应DTO
+ */
+@Data
+public class CursorPageResponse<T> {
+
+    private List<T> content;
+    private Integer size;
+    private String nextCursor;
+    private Boolean hasNext;
+
+    public CursorPageResponse() {}
+
+    public CursorPageResponse(List<T> content, Integer size, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+    }
+}
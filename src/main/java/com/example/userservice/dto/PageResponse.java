@@ -15,6 +15,10 @@ public class PageResponse<T> {
     private Integer totalPages;
     private Boolean first;
     private Boolean last;
+    /**
+     * totalElements/totalPages 是否为近似值
+     */
+    private Boolean approximate;
 
     public PageResponse() {}
 
@@ -26,5 +30,25 @@ public class PageResponse<T> {
         this.totalPages = page.getTotalPages();
         this.first = page.isFirst();
         this.last = page.isLast();
+        this.approximate = false;
+    }
+
+    /**
+     * 由不含总数的切片构造
+     *
+     * @param slice 分页切片
+     * @param approximateTotal 近似总数，为null时不返回总数
+     */
+    public PageResponse(org.springframework.data.domain.Slice<T> slice, Long approximateTotal) {
+        this.content = slice.getContent();
+        this.page = slice.getNumber();
+        this.size = slice.getSize();
+        this.first = slice.isFirst();
+        this.last = slice.isLast();
+        if (approximateTotal != null) {
+            this.totalElements = approximateTotal;
+            this.totalPages = slice.getSize() == 0 ? 1 : (int) Math.ceil((double) approximateTotal / slice.getSize());
+            this.approximate = true;
+        }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.example.userservice.dto;
+
+import lombok.Data;
+
+/**
+ * 批量导入任务进度响应DTO
+ */
+@Data
+public class UserImportJobResponse {
+
+    private String jobId;
+    /**
+     * RUNNING、COMPLETED 或 FAILED
+     */
+    private String status;
+    private String format;
+    /**
+     * 已读取的记录数
+     */
+    private Long processed;
+    private Long imported;
+    /**
+     * 与文件中前面的记录或已有用户的用户名/邮箱/手机号重复而跳过的记录数
+     */
+    private Long duplicates;
+    /**
+     * 字段校验失败（含明文密码）而跳过的记录数
+     */
+    private Long invalid;
+    /**
+     * 写入或角色绑定失败的记录数
+     */
+    private Long failed;
+    private Double rowsPerSecond;
+    private String startedAt;
+    private String finishedAt;
+    private String message;
+}
@@ -0,0 +1,25 @@
+package com.example.userservice.dto;
+
+import lombok.Data;
+
+/**
+ * 批量导入的单条用户记录
+ * password 必须是已哈希的值（{bcrypt}/{argon2}/{pbkdf2} 前缀或不带前缀的BCrypt哈希），不接受明文
+ */
+@Data
+public class UserImportRecord {
+
+    private String username;
+    private String password;
+    private String email;
+    private String phone;
+
+    public UserImportRecord() {}
+
+    public UserImportRecord(String username, String password, String email, String phone) {
+        this.username = username;
+        this.password = password;
+        this.email = email;
+        this.phone = phone;
+    }
+}
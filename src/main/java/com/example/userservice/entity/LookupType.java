@@ -0,0 +1,22 @@
+package com.example.userservice.entity;
+
+/**
+ * 用户查找键类型
+ */
+public enum LookupType {
+
+    /**
+     * 用户名
+     */
+    USERNAME,
+
+    /**
+     * 邮箱
+     */
+    EMAIL,
+
+    /**
+     * 手机号
+     */
+    PHONE
+}
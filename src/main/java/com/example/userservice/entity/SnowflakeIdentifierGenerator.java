@@ -0,0 +1,33 @@
+package com.example.userservice.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Hibernate主键生成器，委托给Spring容器中持有worker-id租约的生成器
+ * Hibernate自行实例化生成器，无法注入Spring Bean，因此由 IdWorkerLeaseManager 启动时注册ID来源
+ */
+public class SnowflakeIdentifierGenerator implements IdentifierGenerator {
+
+    private static volatile LongSupplier idSource;
+
+    /**
+     * 注册ID来源
+     *
+     * @param source ID来源
+     */
+    public static void install(LongSupplier source) {
+        idSource = source;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        LongSupplier source = idSource;
+        if (source == null) {
+            throw new IllegalStateException("ID生成器尚未初始化");
+        }
+        return source.getAsLong();
+    }
+}
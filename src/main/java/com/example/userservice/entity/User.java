@@ -19,10 +19,10 @@ import java.time.LocalDateTime;
 public class User {
 
     /**
-     * 用户ID（主键，雪花算法生成）
+     * 用户ID（主键，雪花算法生成，插入前分配）
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     @Column(name = "user_id")
     private Long userId;
 
@@ -0,0 +1,49 @@
+package com.example.userservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户查找索引实体类
+ * 对应数据库 user_lookup 表，按 lookup_value 分片，
+ * 使用户名/邮箱/手机号到 user_id 的查找只路由到一个分片
+ */
+@Entity
+@Table(name = "user_lookup")
+@IdClass(UserLookupId.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserLookup {
+
+    /**
+     * 查找键类型
+     */
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "lookup_type", length = 16)
+    private LookupType lookupType;
+
+    /**
+     * 查找键值（已规范化，分片键）
+     */
+    @Id
+    @Column(name = "lookup_value", length = 100)
+    private String lookupValue;
+
+    /**
+     * 用户ID
+     */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /**
+     * 创建时间
+     */
+    @Column(name = "gmt_create", nullable = false)
+    private LocalDateTime gmtCreate;
+}
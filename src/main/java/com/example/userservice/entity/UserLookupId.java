@@ -0,0 +1,20 @@
+package com.example.userservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 用户查找索引联合主键
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserLookupId implements Serializable {
+
+    private LookupType lookupType;
+
+    private String lookupValue;
+}
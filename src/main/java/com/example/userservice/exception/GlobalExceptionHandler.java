@@ -23,6 +23,9 @@ package com.example.userservice.exception;
 
 import com.example.userservice.dto.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -51,6 +54,17 @@ public class GlobalExceptionHandler {
         return ApiResponse.error(400, message);
     }
 
+    /**
+     * 处理服务繁忙异常，返回503并提示客户端稍后重试
+     */
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<ApiResponse<?>> handleServiceBusyException(ServiceBusyException e) {
+        log.warn("服务繁忙，拒绝请求: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(ApiResponse.error(503, e.getMessage()));
+    }
+
     /**
      * 处理运行时异常
      */
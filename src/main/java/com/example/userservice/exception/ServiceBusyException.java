@@ -0,0 +1,21 @@
+package com.example.userservice.exception;
+
+import lombok.Getter;
+
+/**
+ * 服务繁忙异常
+ * 受限资源（如密码哈希线程池）已满时快速拒绝请求，由全局异常处理器转换为 HTTP 503
+ */
+@Getter
+public class ServiceBusyException extends RuntimeException {
+
+    /**
+     * 建议客户端重试的等待秒数
+     */
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
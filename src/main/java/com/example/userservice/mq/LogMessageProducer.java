@@ -1,17 +1,39 @@
 package com.example.userservice.mq;
 
+import com.example.userservice.util.MpmcRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.rocketmq.spring.core.RocketMQTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
 
 /**
  * 日志消息生产者
- * 负责向MQ发送操作日志消息
+ * 负责向MQ发送操作日志消息。
+ *
+ * 启用异步发送时，调用方只把消息放入有界无锁环形队列后立即返回，由后台线程按批大小或时间窗口
+ * 批量发送到RocketMQ，Broker变慢不会拖慢登录、注册等请求；队列满时按配置的策略丢弃或等待。
+ * 启用落盘队列后，发送失败的批次及其后的消息写入本地分段文件，Broker恢复后按顺序重放。
+ * 查询日志按 (操作者, 目标用户) 在时间窗口内聚合为汇总日志，查询他人信息的日志仍逐条发送
  */
 @Component
 @Slf4j
@@ -21,11 +43,179 @@ public class LogMessageProducer {
     @Autowired(required = false)
     private RocketMQTemplate rocketMQTemplate;
 
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+
     /**
      * 操作日志主题
      */
     private static final String LOG_TOPIC = "operation-log-topic";
 
+    /**
+     * 消息体格式：json 或 binary
+     */
+    @Value("${mq.log.format:json}")
+    private String format;
+
+    private boolean binaryFormat;
+
+    @Value("${mq.log.async.enabled:true}")
+    private boolean asyncEnabled;
+
+    @Value("${mq.log.buffer.capacity:8192}")
+    private int bufferCapacity;
+
+    @Value("${mq.log.batch.max-size:100}")
+    private int batchMaxSize;
+
+    @Value("${mq.log.batch.window-millis:50}")
+    private long batchWindowMillis;
+
+    @Value("${mq.log.send-timeout-millis:3000}")
+    private long sendTimeoutMillis;
+
+    @Value("${mq.log.overflow-policy:DROP_OLDEST}")
+    private LogOverflowPolicy overflowPolicy;
+
+    @Value("${mq.log.block-timeout-millis:100}")
+    private long blockTimeoutMillis;
+
+    /**
+     * SAMPLE策略：队列占用超过该比例后开始采样
+     */
+    @Value("${mq.log.sample.high-watermark:0.8}")
+    private double sampleHighWatermark;
+
+    /**
+     * SAMPLE策略：超过高水位后每N条保留1条
+     */
+    @Value("${mq.log.sample.rate:10}")
+    private int sampleRate;
+
+    @Value("${mq.log.spool.enabled:true}")
+    private boolean spoolEnabled;
+
+    @Value("${mq.log.spool.dir:./data/log-spool}")
+    private String spoolDir;
+
+    @Value("${mq.log.spool.segment-bytes:67108864}")
+    private int spoolSegmentBytes;
+
+    @Value("${mq.log.spool.max-bytes:1073741824}")
+    private long spoolMaxBytes;
+
+    @Value("${mq.log.spool.fsync:INTERVAL}")
+    private LogSpool.FsyncPolicy spoolFsync;
+
+    @Value("${mq.log.spool.fsync-interval-millis:1000}")
+    private long spoolFsyncIntervalMillis;
+
+    /**
+     * Broker不可用后重试重放的间隔
+     */
+    @Value("${mq.log.spool.retry-interval-millis:5000}")
+    private long spoolRetryIntervalMillis;
+
+    private LogSpool spool;
+
+    /**
+     * 下一次尝试重放落盘消息的时间，仅由发送线程访问
+     */
+    private long replayNotBefore;
+
+    @Value("${mq.log.query-aggregation.enabled:true}")
+    private boolean queryAggregationEnabled;
+
+    @Value("${mq.log.query-aggregation.max-keys:100000}")
+    private int queryAggregationMaxKeys;
+
+    private QueryLogAggregator queryLogAggregator;
+
+    private MpmcRingBuffer<OperationLogMessage> buffer;
+
+    private Thread drainer;
+
+    private volatile boolean running;
+
+    private DistributionSummary batchSizeSummary;
+    private Counter overflowDrops;
+    private Counter sampledDrops;
+    private Counter sendFailureDrops;
+    private Counter spoolFullDrops;
+    private Counter spooledCounter;
+    private Counter replayedCounter;
+
+    @PostConstruct
+    public void init() {
+        this.binaryFormat = OperationLogCodec.FORMAT_BINARY.equalsIgnoreCase(format);
+        if (queryAggregationEnabled) {
+            this.queryLogAggregator = new QueryLogAggregator(queryAggregationMaxKeys);
+        }
+        if (!asyncEnabled) {
+            return;
+        }
+        this.buffer = new MpmcRingBuffer<>(bufferCapacity);
+        if (spoolEnabled) {
+            try {
+                spool = new LogSpool(Paths.get(spoolDir), spoolSegmentBytes, spoolMaxBytes, spoolFsync,
+                        spoolFsyncIntervalMillis);
+            } catch (IOException e) {
+                log.error("操作日志落盘队列打开失败，Broker不可用时将丢弃日志: dir={}", spoolDir, e);
+            }
+        }
+        if (meterRegistry != null) {
+            Gauge.builder("mq.log.queue.depth", buffer, MpmcRingBuffer::size)
+                    .description("等待发送的操作日志数")
+                    .register(meterRegistry);
+            batchSizeSummary = DistributionSummary.builder("mq.log.batch.size")
+                    .description("每次批量发送的操作日志数")
+                    .register(meterRegistry);
+            overflowDrops = dropCounter("overflow");
+            sampledDrops = dropCounter("sampled");
+            sendFailureDrops = dropCounter("send_failed");
+            spoolFullDrops = dropCounter("spool_full");
+            if (spool != null) {
+                Gauge.builder("mq.log.spool.backlog.bytes", spool, LogSpool::backlogBytes)
+                        .description("落盘等待重放的操作日志字节数")
+                        .register(meterRegistry);
+                Gauge.builder("mq.log.spool.corrupt", spool, LogSpool::corruptRecords)
+                        .description("落盘记录校验失败数")
+                        .register(meterRegistry);
+                spooledCounter = Counter.builder("mq.log.spool.written")
+                        .description("写入落盘队列的操作日志数")
+                        .register(meterRegistry);
+                replayedCounter = Counter.builder("mq.log.spool.replayed")
+                        .description("从落盘队列重放成功的操作日志数")
+                        .register(meterRegistry);
+            }
+        }
+        this.running = true;
+        this.drainer = new Thread(this::drainLoop, "mq-log-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+        log.info("操作日志异步发送初始化: capacity={}, batchMaxSize={}, windowMillis={}, overflowPolicy={}",
+                buffer.capacity(), batchMaxSize, batchWindowMillis, overflowPolicy);
+    }
+
+    /**
+     * 停止后台线程，发送队列中剩余的消息
+     * 落盘队列由后台线程退出时关闭；等待超时后后台线程仍在发送或写落盘文件，此时不能关闭落盘队列
+     */
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        flushQuerySummaries();
+        if (drainer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(drainer);
+        drainer.join(sendTimeoutMillis * 2);
+        if (drainer.isAlive()) {
+            log.warn("操作日志后台线程未在{}ms内退出，落盘队列由其退出时关闭", sendTimeoutMillis * 2);
+        }
+    }
+
     /**
      * 发送用户注册日志
      *
@@ -33,15 +223,7 @@ public class LogMessageProducer {
      * @param username 用户名
      */
     public void sendUserRegisterLog(Long userId, String username) {
-        OperationLogMessage message = new OperationLogMessage();
-        message.setUserId(userId);
-        message.setUsername(username);
-        message.setOperation("USER_REGISTER");
-        message.setDescription("用户注册");
-        message.setIpAddress(getCurrentIpAddress());
-        message.setTimestamp(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-
-        sendLogMessage(message);
+        sendLogMessage(newMessage(OperationType.USER_REGISTER, userId, username));
     }
 
     /**
@@ -51,15 +233,7 @@ public class LogMessageProducer {
      * @param username 用户名
      */
     public void sendUserLoginLog(Long userId, String username) {
-        OperationLogMessage message = new OperationLogMessage();
-        message.setUserId(userId);
-        message.setUsername(username);
-        message.setOperation("USER_LOGIN");
-        message.setDescription("用户登录");
-        message.setIpAddress(getCurrentIpAddress());
-        message.setTimestamp(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-
-        sendLogMessage(message);
+        sendLogMessage(newMessage(OperationType.USER_LOGIN, userId, username));
     }
 
     /**
@@ -70,14 +244,8 @@ public class LogMessageProducer {
      * @param updateFields 更新字段
      */
     public void sendUserUpdateLog(Long userId, String username, String updateFields) {
-        OperationLogMessage message = new OperationLogMessage();
-        message.setUserId(userId);
-        message.setUsername(username);
-        message.setOperation("USER_UPDATE");
-        message.setDescription("用户信息更新: " + updateFields);
-        message.setIpAddress(getCurrentIpAddress());
-        message.setTimestamp(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-
+        OperationLogMessage message = newMessage(OperationType.USER_UPDATE, userId, username);
+        message.setDetail(updateFields);
         sendLogMessage(message);
     }
 
@@ -88,15 +256,7 @@ public class LogMessageProducer {
      * @param username 用户名
      */
     public void sendPasswordResetLog(Long userId, String username) {
-        OperationLogMessage message = new OperationLogMessage();
-        message.setUserId(userId);
-        message.setUsername(username);
-        message.setOperation("PASSWORD_RESET");
-        message.setDescription("密码重置");
-        message.setIpAddress(getCurrentIpAddress());
-        message.setTimestamp(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-
-        sendLogMessage(message);
+        sendLogMessage(newMessage(OperationType.PASSWORD_RESET, userId, username));
     }
 
     /**
@@ -104,29 +264,88 @@ public class LogMessageProducer {
      *
      * @param operatorUserId 操作者用户ID
      * @param operatorUsername 操作者用户名
-     * @param targetUserId 目标用户ID
+     * @param targetUserId 目标用户ID，列表查询（结果可能包含他人信息）时为null
      */
     public void sendUserQueryLog(Long operatorUserId, String operatorUsername, Long targetUserId) {
-        OperationLogMessage message = new OperationLogMessage();
-        message.setUserId(operatorUserId);
-        message.setUsername(operatorUsername);
-        message.setOperation("USER_QUERY");
-        message.setDescription("查询用户信息: " + targetUserId);
-        message.setIpAddress(getCurrentIpAddress());
-        message.setTimestamp(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        // 查询他人信息和列表查询属于敏感操作，不聚合；只有查询自己的日志参与聚合
+        boolean sensitive = targetUserId == null || !targetUserId.equals(operatorUserId);
+        if (queryLogAggregator != null && !sensitive
+                && queryLogAggregator.record(operatorUserId, operatorUsername, targetUserId, System.currentTimeMillis())) {
+            return;
+        }
+        OperationLogMessage message = newMessage(OperationType.USER_QUERY, operatorUserId, operatorUsername);
+        message.setTargetUserId(targetUserId);
+        sendLogMessage(message);
+    }
 
+    /**
+     * 发送批量查询用户日志
+     * 只查询自己时按单用户查询处理（参与聚合）；包含他人时发送一条不聚合的日志，detail中列出被查询的他人用户ID
+     *
+     * @param operatorUserId 操作者用户ID
+     * @param operatorUsername 操作者用户名
+     * @param targetUserIds 实际返回的用户ID
+     */
+    public void sendUserBatchQueryLog(Long operatorUserId, String operatorUsername, List<Long> targetUserIds) {
+        List<Long> others = targetUserIds.stream()
+                .filter(id -> !id.equals(operatorUserId))
+                .collect(Collectors.toList());
+        if (others.isEmpty()) {
+            if (!targetUserIds.isEmpty()) {
+                sendUserQueryLog(operatorUserId, operatorUsername, operatorUserId);
+            }
+            return;
+        }
+        OperationLogMessage message = newMessage(OperationType.USER_QUERY, operatorUserId, operatorUsername);
+        if (others.size() == 1) {
+            message.setTargetUserId(others.get(0));
+        }
+        message.setDetail("targetUserIds=" + others);
         sendLogMessage(message);
     }
 
+    /**
+     * 按窗口发送查询汇总日志
+     */
+    @Scheduled(initialDelayString = "${mq.log.query-aggregation.window-millis:10000}",
+            fixedDelayString = "${mq.log.query-aggregation.window-millis:10000}")
+    public void flushQuerySummaries() {
+        if (queryLogAggregator == null) {
+            return;
+        }
+        for (OperationLogMessage summary : queryLogAggregator.drain()) {
+            summary.setIpAddress(getCurrentIpAddress());
+            sendLogMessage(summary);
+        }
+    }
+
+    /**
+     * 创建操作日志，描述和时间字符串只在按JSON格式发送时生成
+     */
+    private OperationLogMessage newMessage(OperationType type, Long userId, String username) {
+        OperationLogMessage message = new OperationLogMessage();
+        message.setUserId(userId);
+        message.setUsername(username);
+        message.setOperation(type.name());
+        message.setIpAddress(getCurrentIpAddress());
+        message.setEpochMillis(System.currentTimeMillis());
+        return message;
+    }
+
     /**
      * 发送日志消息到MQ
+     * 异步模式下只入队，不在调用方线程上访问Broker
      *
      * @param message 日志消息
      */
     private void sendLogMessage(OperationLogMessage message) {
+        if (buffer != null) {
+            enqueue(message);
+            return;
+        }
         try {
             if (rocketMQTemplate != null) {
-                rocketMQTemplate.convertAndSend(LOG_TOPIC, message);
+                rocketMQTemplate.send(LOG_TOPIC, toMqMessage(message));
                 log.info("发送操作日志消息成功: {}", message);
             } else {
                 log.debug("RocketMQ未配置，跳过日志消息发送: {}", message);
@@ -136,6 +355,226 @@ public class LogMessageProducer {
         }
     }
 
+    /**
+     * 按溢出策略入队
+     */
+    private void enqueue(OperationLogMessage message) {
+        switch (overflowPolicy) {
+            case BLOCK:
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+                while (!buffer.offer(message)) {
+                    if (System.nanoTime() - deadline >= 0) {
+                        drop(overflowDrops, message);
+                        return;
+                    }
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                }
+                return;
+            case SAMPLE:
+                if (buffer.size() >= buffer.capacity() * sampleHighWatermark
+                        && ThreadLocalRandom.current().nextInt(Math.max(sampleRate, 1)) != 0) {
+                    drop(sampledDrops, message);
+                    return;
+                }
+                if (!buffer.offer(message)) {
+                    drop(overflowDrops, message);
+                }
+                return;
+            case DROP_OLDEST:
+            default:
+                while (!buffer.offer(message)) {
+                    OperationLogMessage oldest = buffer.poll();
+                    if (oldest != null) {
+                        drop(overflowDrops, oldest);
+                    }
+                }
+        }
+    }
+
+    /**
+     * 后台发送循环：攒满一批或距本批第一条消息超过时间窗口时发送，空闲时重放落盘消息
+     * 退出时关闭落盘队列，保证关闭之后不再有写入
+     */
+    private void drainLoop() {
+        try {
+            drain();
+        } finally {
+            if (spool != null) {
+                try {
+                    spool.close();
+                } catch (Exception e) {
+                    log.error("关闭操作日志落盘队列失败", e);
+                }
+            }
+        }
+    }
+
+    private void drain() {
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(batchWindowMillis);
+        List<OperationLogMessage> batch = new ArrayList<>(batchMaxSize);
+        long batchStartedAt = 0L;
+        while (running || !buffer.isEmpty()) {
+            OperationLogMessage message = buffer.poll();
+            if (message != null) {
+                if (batch.isEmpty()) {
+                    batchStartedAt = System.nanoTime();
+                }
+                batch.add(message);
+                if (batch.size() >= batchMaxSize) {
+                    dispatch(batch);
+                    replaySpool();
+                }
+                continue;
+            }
+            boolean worked = false;
+            if (!batch.isEmpty() && (!running || System.nanoTime() - batchStartedAt >= windowNanos)) {
+                dispatch(batch);
+                worked = true;
+            }
+            worked |= replaySpool();
+            if (spool != null) {
+                spool.sync();
+            }
+            if (!worked && running) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    /**
+     * 发送一批日志，发送后清空批次
+     * 落盘队列中仍有积压时直接追加到落盘队列，保证整体顺序；发送失败时转入落盘队列
+     */
+    private void dispatch(List<OperationLogMessage> batch) {
+        try {
+            if (spool != null && spool.hasBacklog()) {
+                spoolBatch(batch);
+            } else if (!sendBatch(batch)) {
+                if (spool != null) {
+                    replayNotBefore = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(spoolRetryIntervalMillis);
+                    spoolBatch(batch);
+                } else if (sendFailureDrops != null) {
+                    sendFailureDrops.increment(batch.size());
+                }
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * 重放一批落盘消息
+     *
+     * @return 是否重放了消息
+     */
+    private boolean replaySpool() {
+        if (spool == null || !spool.hasBacklog() || System.nanoTime() - replayNotBefore < 0) {
+            return false;
+        }
+        try {
+            List<byte[]> records = spool.peek(batchMaxSize);
+            List<OperationLogMessage> messages = new ArrayList<>(records.size());
+            for (byte[] record : records) {
+                try {
+                    messages.add(OperationLogCodec.decode(record));
+                } catch (IllegalArgumentException e) {
+                    log.warn("落盘操作日志无法解析，跳过: {}", e.getMessage());
+                }
+            }
+            if (!messages.isEmpty() && !sendBatch(messages)) {
+                replayNotBefore = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(spoolRetryIntervalMillis);
+                return false;
+            }
+            spool.commit();
+            if (replayedCounter != null) {
+                replayedCounter.increment(messages.size());
+            }
+            return !records.isEmpty();
+        } catch (IOException e) {
+            log.error("重放落盘操作日志失败", e);
+            replayNotBefore = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(spoolRetryIntervalMillis);
+            return false;
+        }
+    }
+
+    private void spoolBatch(List<OperationLogMessage> batch) {
+        for (OperationLogMessage message : batch) {
+            try {
+                if (spool.append(OperationLogCodec.encode(message))) {
+                    if (spooledCounter != null) {
+                        spooledCounter.increment();
+                    }
+                } else {
+                    drop(spoolFullDrops, message);
+                }
+            } catch (IOException e) {
+                log.error("操作日志写入落盘队列失败，丢弃: {}", message, e);
+                if (sendFailureDrops != null) {
+                    sendFailureDrops.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * 以RocketMQ批量消息发送一批日志
+     *
+     * @return 是否发送成功
+     */
+    private boolean sendBatch(List<OperationLogMessage> batch) {
+        try {
+            if (rocketMQTemplate != null) {
+                List<Message<?>> messages = new ArrayList<>(batch.size());
+                for (OperationLogMessage message : batch) {
+                    messages.add(toMqMessage(message));
+                }
+                rocketMQTemplate.syncSend(LOG_TOPIC, messages, sendTimeoutMillis);
+                log.debug("批量发送操作日志消息成功: count={}", batch.size());
+            } else {
+                log.debug("RocketMQ未配置，跳过日志消息发送: count={}", batch.size());
+            }
+            if (batchSizeSummary != null) {
+                batchSizeSummary.record(batch.size());
+            }
+            return true;
+        } catch (Exception e) {
+            log.error("批量发送操作日志消息失败: count={}", batch.size(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 按配置的格式构造MQ消息，消息头标明格式供消费端选择解码方式
+     */
+    private Message<?> toMqMessage(OperationLogMessage message) {
+        if (binaryFormat) {
+            return MessageBuilder.withPayload(OperationLogCodec.encode(message))
+                    .setHeader(OperationLogCodec.FORMAT_HEADER, OperationLogCodec.FORMAT_BINARY)
+                    .build();
+        }
+        OperationLogCodec.fillDerivedFields(message);
+        return MessageBuilder.withPayload(message)
+                .setHeader(OperationLogCodec.FORMAT_HEADER, OperationLogCodec.FORMAT_JSON)
+                .build();
+    }
+
+    private void drop(Counter counter, OperationLogMessage message) {
+        if (counter != null) {
+            counter.increment();
+        }
+        log.debug("操作日志队列已满，丢弃消息: {}", message);
+    }
+
+    private Counter dropCounter(String reason) {
+        return Counter.builder("mq.log.dropped")
+                .description("未能发送而被丢弃的操作日志数")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
     /**
      * 获取当前请求的IP地址（简化实现）
      * 实际项目中需要从HttpServletRequest中获取
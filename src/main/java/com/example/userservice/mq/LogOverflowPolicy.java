@@ -0,0 +1,22 @@
+package com.example.userservice.mq;
+
+/**
+ * 日志发送队列满时的处理策略
+ */
+public enum LogOverflowPolicy {
+
+    /**
+     * 丢弃最早的消息，保留最新的消息
+     */
+    DROP_OLDEST,
+
+    /**
+     * 阻塞调用方等待空位，超过等待时间后丢弃当前消息
+     */
+    BLOCK,
+
+    /**
+     * 队列超过高水位后按比例采样入队，队列满时丢弃当前消息
+     */
+    SAMPLE
+}
@@ -0,0 +1,367 @@
+package com.example.userservice.mq;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 操作日志本地落盘队列
+ * MQ不可用时，发送失败或排在积压之后的消息以追加方式写入内存映射的分段文件，Broker恢复后按写入顺序重放。
+ *
+ * <ul>
+ *     <li>记录格式：[长度int][CRC32 int][负载]，长度最后写入，写入中断的记录长度为0，视为段尾</li>
+ *     <li>段文件写满后滚动到下一个段，段文件名为递增序号</li>
+ *     <li>重放游标（段序号+偏移）持久化在cursor文件中，游标之前的段在确认后删除</li>
+ *     <li>重放为至少一次语义：发送成功但游标未及持久化时，重启后会再次发送</li>
+ * </ul>
+ * 非线程安全，仅由日志发送线程访问
+ */
+@Slf4j
+public class LogSpool implements Closeable {
+
+    /**
+     * 刷盘策略
+     */
+    public enum FsyncPolicy {
+        /**
+         * 每条记录写入后刷盘
+         */
+        ALWAYS,
+        /**
+         * 按固定间隔刷盘
+         */
+        INTERVAL,
+        /**
+         * 不主动刷盘，由操作系统决定
+         */
+        NEVER
+    }
+
+    private static final int HEADER_BYTES = 8;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CURSOR_FILE = "cursor";
+    private static final String CURSOR_TMP_FILE = "cursor.tmp";
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final long maxBytes;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+
+    private long writeSegment;
+    private MappedByteBuffer writeBuffer;
+
+    private long readSegment;
+    private int readOffset;
+    private long pendingSegment;
+    private int pendingOffset;
+
+    private long cachedReadSegment = -1;
+    private MappedByteBuffer cachedReadBuffer;
+
+    private boolean dirty;
+    private long lastForceAt = System.nanoTime();
+    private long corruptRecords;
+
+    public LogSpool(Path dir, int segmentBytes, long maxBytes, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis)
+            throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+        open();
+    }
+
+    /**
+     * 追加一条记录
+     *
+     * @param payload 负载
+     * @return 超过容量上限或单条记录超过段大小时返回false
+     */
+    public boolean append(byte[] payload) throws IOException {
+        int recordBytes = HEADER_BYTES + payload.length;
+        if (recordBytes > segmentBytes || backlogBytes() + recordBytes > maxBytes) {
+            return false;
+        }
+        if (writeBuffer.remaining() < recordBytes) {
+            rotate();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int position = writeBuffer.position();
+        writeBuffer.putInt(position + 4, (int) crc.getValue());
+        writeBuffer.put(position + HEADER_BYTES, payload);
+        writeBuffer.putInt(position, payload.length);
+        writeBuffer.position(position + recordBytes);
+        dirty = true;
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            force();
+        }
+        return true;
+    }
+
+    /**
+     * 按刷盘策略将已写入的记录刷到磁盘，由发送线程定期调用
+     */
+    public void sync() {
+        if (dirty && fsyncPolicy == FsyncPolicy.INTERVAL && System.nanoTime() - lastForceAt >= fsyncIntervalNanos) {
+            force();
+        }
+    }
+
+    /**
+     * 从游标处读取记录，不移动游标；发送成功后调用 {@link #commit()} 确认
+     *
+     * @param max 最多读取条数
+     * @return 记录负载
+     */
+    public List<byte[]> peek(int max) throws IOException {
+        List<byte[]> records = new ArrayList<>(Math.min(max, 256));
+        long segment = readSegment;
+        int offset = readOffset;
+        while (records.size() < max) {
+            boolean writing = segment == writeSegment;
+            if (writing && offset >= writeBuffer.position()) {
+                break;
+            }
+            ByteBuffer buffer = bufferFor(segment);
+            int limit = writing ? writeBuffer.position() : (buffer == null ? 0 : buffer.capacity());
+            int length = offset + HEADER_BYTES <= limit ? buffer.getInt(offset) : 0;
+            if (length <= 0 || offset + HEADER_BYTES + length > limit) {
+                // 段尾（或段文件丢失），转到下一段
+                if (writing) {
+                    break;
+                }
+                segment++;
+                offset = 0;
+                continue;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER_BYTES, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                corruptRecords++;
+                log.warn("操作日志落盘记录校验失败，跳过该段剩余内容: segment={}, offset={}", segment, offset);
+                if (writing) {
+                    break;
+                }
+                segment++;
+                offset = 0;
+                continue;
+            }
+            records.add(payload);
+            offset += HEADER_BYTES + length;
+        }
+        pendingSegment = segment;
+        pendingOffset = offset;
+        return records;
+    }
+
+    /**
+     * 确认上一次 {@link #peek(int)} 读取的记录已处理，持久化游标并删除已读完的段
+     */
+    public void commit() throws IOException {
+        long previousSegment = readSegment;
+        readSegment = pendingSegment;
+        readOffset = pendingOffset;
+        persistCursor();
+        for (long segment = previousSegment; segment < readSegment; segment++) {
+            deleteSegment(segment);
+        }
+    }
+
+    /**
+     * 是否有尚未重放的记录
+     */
+    public boolean hasBacklog() {
+        return readSegment < writeSegment || readOffset < writeBuffer.position();
+    }
+
+    /**
+     * 尚未重放的字节数
+     */
+    public long backlogBytes() {
+        return (writeSegment - readSegment) * segmentBytes + writeBuffer.position() - readOffset;
+    }
+
+    /**
+     * 读取时校验失败的记录数
+     */
+    public long corruptRecords() {
+        return corruptRecords;
+    }
+
+    @Override
+    public void close() {
+        if (dirty && fsyncPolicy != FsyncPolicy.NEVER) {
+            force();
+        }
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(dir);
+        List<Long> segments = listSegments();
+        long[] cursor = loadCursor();
+        if (cursor != null) {
+            readSegment = cursor[0];
+            readOffset = (int) cursor[1];
+        } else {
+            readSegment = segments.isEmpty() ? 0L : segments.get(0);
+            readOffset = 0;
+        }
+        for (Long segment : segments) {
+            if (segment < readSegment) {
+                deleteSegment(segment);
+            }
+        }
+        segments.removeIf(segment -> segment < readSegment);
+        if (!segments.isEmpty() && segments.get(0) > readSegment) {
+            // 游标所在段已不存在，从最早的段开始
+            readSegment = segments.get(0);
+            readOffset = 0;
+        }
+
+        if (segments.isEmpty()) {
+            writeSegment = readSegment;
+            writeBuffer = map(writeSegment);
+            writeBuffer.position(Math.min(readOffset, segmentBytes));
+        } else {
+            writeSegment = segments.get(segments.size() - 1);
+            writeBuffer = map(writeSegment);
+            writeBuffer.position(scanEnd(writeBuffer));
+        }
+        pendingSegment = readSegment;
+        pendingOffset = readOffset;
+        log.info("操作日志落盘队列已打开: dir={}, segments={}, backlogBytes={}", dir, segments.size(), backlogBytes());
+    }
+
+    private void rotate() throws IOException {
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            force();
+        }
+        writeSegment++;
+        writeBuffer = map(writeSegment);
+    }
+
+    private void force() {
+        writeBuffer.force();
+        dirty = false;
+        lastForceAt = System.nanoTime();
+    }
+
+    /**
+     * 找到段内最后一条完整记录之后的位置
+     */
+    private int scanEnd(ByteBuffer buffer) {
+        int offset = 0;
+        while (offset + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_BYTES + length > buffer.capacity()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER_BYTES, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+        return offset;
+    }
+
+    private ByteBuffer bufferFor(long segment) throws IOException {
+        if (segment == writeSegment) {
+            return writeBuffer;
+        }
+        if (segment != cachedReadSegment) {
+            Path path = segmentPath(segment);
+            if (!Files.exists(path)) {
+                return null;
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                cachedReadBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            cachedReadSegment = segment;
+        }
+        return cachedReadBuffer;
+    }
+
+    private MappedByteBuffer map(long segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    private void persistCursor() throws IOException {
+        ByteBuffer content = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+        content.putLong(readSegment).putInt(readOffset).flip();
+        Path tmp = dir.resolve(CURSOR_TMP_FILE);
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(content);
+            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                channel.force(false);
+            }
+        }
+        Files.move(tmp, dir.resolve(CURSOR_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private long[] loadCursor() throws IOException {
+        Path path = dir.resolve(CURSOR_FILE);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (content.remaining() < Long.BYTES + Integer.BYTES) {
+            log.warn("操作日志落盘游标文件损坏，从最早的段开始重放");
+            return null;
+        }
+        return new long[]{content.getLong(), content.getInt()};
+    }
+
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private void deleteSegment(long segment) {
+        if (segment == cachedReadSegment) {
+            cachedReadSegment = -1;
+            cachedReadBuffer = null;
+        }
+        try {
+            Files.deleteIfExists(segmentPath(segment));
+        } catch (IOException e) {
+            // 部分平台上仍被映射的文件无法删除，下次启动时会再次清理
+            log.warn("删除已重放的操作日志段失败: segment={}, error={}", segment, e.getMessage());
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return dir.resolve(String.format("%020d%s", segment, SEGMENT_SUFFIX));
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.userservice.mq;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 操作日志二进制编解码
+ * 不依赖Spring和JSON库，消费端可直接使用 {@link #decode(byte[])} 解码。
+ *
+ * <pre>
+ * v1格式:
+ *   u8     版本号(1)
+ *   u8     操作类型编码，0表示未登记的类型，其名称以字符串跟在标志位之后
+ *   u8     标志位: bit0 userId, bit1 targetUserId, bit2 username, bit3 ipAddress, bit4 detail, bit5 extraData,
+ *                 bit6 count, bit7 windowStartMillis
+ *   [str]  操作名称（仅当操作类型编码为0）
+ *   varint epochMillis
+ *   varint userId / targetUserId（按标志位）
+ *   str    username / ipAddress / detail / extraData（按标志位）
+ *   varint count / windowStartMillis（按标志位）
+ *
+ *   varint: 无符号LEB128，每字节7位；str: varint字节长度 + UTF-8
+ * </pre>
+ * 描述文本不编码，由操作类型和detail/targetUserId还原
+ */
+public final class OperationLogCodec {
+
+    /**
+     * 消息头：标识消息体格式
+     */
+    public static final String FORMAT_HEADER = "logFormat";
+
+    public static final String FORMAT_JSON = "json";
+
+    public static final String FORMAT_BINARY = "binary";
+
+    public static final int VERSION = 1;
+
+    private static final int HAS_USER_ID = 1;
+    private static final int HAS_TARGET_USER_ID = 1 << 1;
+    private static final int HAS_USERNAME = 1 << 2;
+    private static final int HAS_IP_ADDRESS = 1 << 3;
+    private static final int HAS_DETAIL = 1 << 4;
+    private static final int HAS_EXTRA_DATA = 1 << 5;
+    private static final int HAS_COUNT = 1 << 6;
+    private static final int HAS_WINDOW_START = 1 << 7;
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private OperationLogCodec() {
+    }
+
+    /**
+     * 编码为v1二进制格式
+     *
+     * @param message 操作日志
+     * @return 编码结果
+     */
+    public static byte[] encode(OperationLogMessage message) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        OperationType type = OperationType.fromName(message.getOperation());
+        int flags = (message.getUserId() != null ? HAS_USER_ID : 0)
+                | (message.getTargetUserId() != null ? HAS_TARGET_USER_ID : 0)
+                | (message.getUsername() != null ? HAS_USERNAME : 0)
+                | (message.getIpAddress() != null ? HAS_IP_ADDRESS : 0)
+                | (message.getDetail() != null ? HAS_DETAIL : 0)
+                | (message.getExtraData() != null ? HAS_EXTRA_DATA : 0)
+                | (message.getCount() != null ? HAS_COUNT : 0)
+                | (message.getWindowStartMillis() != null ? HAS_WINDOW_START : 0);
+        out.write(VERSION);
+        out.write(type != null ? type.getCode() : 0);
+        out.write(flags);
+        if (type == null) {
+            writeString(out, message.getOperation() != null ? message.getOperation() : "");
+        }
+        writeVarLong(out, message.getEpochMillis() != null ? message.getEpochMillis() : 0L);
+        if (message.getUserId() != null) {
+            writeVarLong(out, message.getUserId());
+        }
+        if (message.getTargetUserId() != null) {
+            writeVarLong(out, message.getTargetUserId());
+        }
+        if (message.getUsername() != null) {
+            writeString(out, message.getUsername());
+        }
+        if (message.getIpAddress() != null) {
+            writeString(out, message.getIpAddress());
+        }
+        if (message.getDetail() != null) {
+            writeString(out, message.getDetail());
+        }
+        if (message.getExtraData() != null) {
+            writeString(out, message.getExtraData());
+        }
+        if (message.getCount() != null) {
+            writeVarLong(out, message.getCount());
+        }
+        if (message.getWindowStartMillis() != null) {
+            writeVarLong(out, message.getWindowStartMillis());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码二进制格式，并还原描述和时间字符串
+     *
+     * @param bytes 编码结果
+     * @return 操作日志
+     * @throws IllegalArgumentException 版本不支持或数据不完整
+     */
+    public static OperationLogMessage decode(byte[] bytes) {
+        Reader in = new Reader(bytes);
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("不支持的操作日志格式版本: " + version);
+        }
+        int code = in.readByte();
+        int flags = in.readByte();
+        OperationLogMessage message = new OperationLogMessage();
+        OperationType type = OperationType.fromCode(code);
+        if (code == 0) {
+            message.setOperation(in.readString());
+        } else if (type == null) {
+            throw new IllegalArgumentException("未知的操作类型编码: " + code);
+        } else {
+            message.setOperation(type.name());
+        }
+        message.setEpochMillis(in.readVarLong());
+        if ((flags & HAS_USER_ID) != 0) {
+            message.setUserId(in.readVarLong());
+        }
+        if ((flags & HAS_TARGET_USER_ID) != 0) {
+            message.setTargetUserId(in.readVarLong());
+        }
+        if ((flags & HAS_USERNAME) != 0) {
+            message.setUsername(in.readString());
+        }
+        if ((flags & HAS_IP_ADDRESS) != 0) {
+            message.setIpAddress(in.readString());
+        }
+        if ((flags & HAS_DETAIL) != 0) {
+            message.setDetail(in.readString());
+        }
+        if ((flags & HAS_EXTRA_DATA) != 0) {
+            message.setExtraData(in.readString());
+        }
+        if ((flags & HAS_COUNT) != 0) {
+            message.setCount((int) in.readVarLong());
+        }
+        if ((flags & HAS_WINDOW_START) != 0) {
+            message.setWindowStartMillis(in.readVarLong());
+        }
+        fillDerivedFields(message);
+        return message;
+    }
+
+    /**
+     * 按操作类型、detail和targetUserId生成描述与时间字符串（JSON格式及解码后使用）
+     *
+     * @param message 操作日志
+     */
+    public static void fillDerivedFields(OperationLogMessage message) {
+        if (message.getDescription() == null) {
+            OperationType type = OperationType.fromName(message.getOperation());
+            String description = type != null ? type.getDescription() : message.getOperation();
+            if (message.getDetail() != null) {
+                description = description + ": " + message.getDetail();
+            } else if (type == OperationType.USER_QUERY) {
+                description = description + ": " + message.getTargetUserId();
+            } else if (type == OperationType.USER_QUERY_SUMMARY) {
+                description = description + ": " + message.getTargetUserId() + " x" + message.getCount();
+            }
+            message.setDescription(description);
+        }
+        if (message.getTimestamp() == null && message.getEpochMillis() != null) {
+            message.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(message.getEpochMillis()),
+                    ZoneId.systemDefault()).format(TIMESTAMP_FORMAT));
+        }
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        private Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private int readByte() {
+            if (position >= bytes.length) {
+                throw new IllegalArgumentException("操作日志数据不完整");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("varint过长");
+        }
+
+        private String readString() {
+            long length = readVarLong();
+            if (length < 0 || length > bytes.length - position) {
+                throw new IllegalArgumentException("操作日志数据不完整");
+            }
+            String value = new String(bytes, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return value;
+        }
+    }
+}
@@ -28,6 +28,16 @@ public class OperationLogMessage {
      */
     private String description;
 
+    /**
+     * 操作明细（如更新的字段），二进制格式中代替描述文本传输
+     */
+    private String detail;
+
+    /**
+     * 目标用户ID
+     */
+    private Long targetUserId;
+
     /**
      * IP地址
      */
@@ -38,8 +48,23 @@ public class OperationLogMessage {
      */
     private String timestamp;
 
+    /**
+     * 操作时间（毫秒时间戳）
+     */
+    private Long epochMillis;
+
     /**
      * 额外数据（JSON格式）
      */
     private String extraData;
+
+    /**
+     * 汇总日志：窗口内的操作次数
+     */
+    private Integer count;
+
+    /**
+     * 汇总日志：窗口内第一次操作的时间（毫秒时间戳），epochMillis为最后一次
+     */
+    private Long windowStartMillis;
 } 
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.example.userservice.mq;
+
+/**
+ * 操作日志类型
+ * code 为二进制格式中的编码，一经发布不可修改；新增类型只能追加新的 code
+ */
+public enum OperationType {
+
+    USER_REGISTER(1, "用户注册"),
+    USER_LOGIN(2, "用户登录"),
+    USER_UPDATE(3, "用户信息更新"),
+    PASSWORD_RESET(4, "密码重置"),
+    USER_QUERY(5, "查询用户信息"),
+    USER_QUERY_SUMMARY(6, "查询用户信息汇总");
+
+    private static final OperationType[] BY_CODE = new OperationType[16];
+
+    static {
+        for (OperationType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final int code;
+    private final String description;
+
+    OperationType(int code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 按编码查找
+     *
+     * @param code 编码
+     * @return 操作类型，未知编码返回null
+     */
+    public static OperationType fromCode(int code) {
+        return code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+
+    /**
+     * 按名称查找
+     *
+     * @param name 名称
+     * @return 操作类型，未知名称返回null
+     */
+    public static OperationType fromName(String name) {
+        for (OperationType type : values()) {
+            if (type.name().equals(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.userservice.mq;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 用户查询日志聚合器
+ * 把同一窗口内相同 (操作者, 目标用户) 的查询事件折叠为一个计数，窗口结束时生成一条汇总日志。
+ *
+ * 计数只在 ConcurrentHashMap.compute 内修改；汇总时逐个 remove 后再读取，
+ * 之后到达的事件会创建新条目计入下一个窗口，不会丢失
+ */
+public class QueryLogAggregator {
+
+    private final int maxKeys;
+
+    private final ConcurrentHashMap<Key, Aggregate> aggregates = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxKeys 单个窗口最多聚合的键数，超出后调用方应直接发送单条日志
+     */
+    public QueryLogAggregator(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * 记录一次查询
+     *
+     * @return 已达到键数上限未能聚合时返回false
+     */
+    public boolean record(Long operatorUserId, String operatorUsername, Long targetUserId, long epochMillis) {
+        Key key = new Key(operatorUserId, targetUserId);
+        if (aggregates.size() >= maxKeys && !aggregates.containsKey(key)) {
+            return false;
+        }
+        aggregates.compute(key, (k, aggregate) -> {
+            if (aggregate == null) {
+                aggregate = new Aggregate(operatorUsername, epochMillis);
+            }
+            aggregate.count++;
+            aggregate.lastMillis = epochMillis;
+            return aggregate;
+        });
+        return true;
+    }
+
+    /**
+     * 取出当前窗口的所有汇总并清空
+     *
+     * @return 汇总日志
+     */
+    public List<OperationLogMessage> drain() {
+        List<OperationLogMessage> summaries = new ArrayList<>(aggregates.size());
+        for (Key key : aggregates.keySet()) {
+            Aggregate aggregate = aggregates.remove(key);
+            if (aggregate == null) {
+                continue;
+            }
+            OperationLogMessage message = new OperationLogMessage();
+            message.setOperation(OperationType.USER_QUERY_SUMMARY.name());
+            message.setUserId(key.operatorUserId);
+            message.setUsername(aggregate.operatorUsername);
+            message.setTargetUserId(key.targetUserId);
+            message.setCount(aggregate.count);
+            message.setWindowStartMillis(aggregate.firstMillis);
+            message.setEpochMillis(aggregate.lastMillis);
+            summaries.add(message);
+        }
+        return summaries;
+    }
+
+    private static final class Key {
+        private final Long operatorUserId;
+        private final Long targetUserId;
+
+        private Key(Long operatorUserId, Long targetUserId) {
+            this.operatorUserId = operatorUserId;
+            this.targetUserId = targetUserId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return Objects.equals(operatorUserId, other.operatorUserId) && Objects.equals(targetUserId, other.targetUserId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(operatorUserId, targetUserId);
+        }
+    }
+
+    /**
+     * 只在 compute 内修改
+     */
+    private static final class Aggregate {
+        private final String operatorUsername;
+        private final long firstMillis;
+        private long lastMillis;
+        private int count;
+
+        private Aggregate(String operatorUsername, long firstMillis) {
+            this.operatorUsername = operatorUsername;
+            this.firstMillis = firstMillis;
+            this.lastMillis = firstMillis;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.entity.LookupType;
+import com.example.userservice.entity.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 用户批量写入数据访问层（批量导入使用）
+ * 绕过JPA逐条持久化，直接使用JDBC批处理；用户ID在插入前分配，调用方按物理表排序后，
+ * MySQL连接开启 rewriteBatchedStatements 时同一物理表的批处理语句会被改写为多行INSERT。须在调用方的事务中执行
+ */
+@Repository
+public class UserBatchRepository {
+
+    private static final String INSERT_USER_SQL = "INSERT INTO users (user_id, username, password, email, phone, " +
+            "gmt_create, gmt_modified, is_deleted) VALUES (?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String INSERT_LOOKUP_SQL = "INSERT INTO user_lookup (lookup_type, lookup_value, user_id, gmt_create) " +
+            "VALUES (?, ?, ?, CURRENT_TIMESTAMP)";
+
+    private static final String DELETE_USER_SQL = "DELETE FROM users WHERE user_id = ?";
+
+    private static final String DELETE_LOOKUP_SQL = "DELETE FROM user_lookup WHERE lookup_type = ? AND lookup_value = ? AND user_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * 批量插入用户，用户ID须已由调用方分配
+     *
+     * @param users 待插入的用户
+     */
+    public void insertUsers(List<User> users) {
+        List<Object[]> rows = new ArrayList<>(users.size());
+        for (User user : users) {
+            if (user.getUserId() == null) {
+                throw new IllegalStateException("批量插入的用户未分配ID");
+            }
+            rows.add(new Object[]{user.getUserId(), user.getUsername(), user.getPassword(), user.getEmail(),
+                    user.getPhone(), Timestamp.valueOf(user.getGmtCreate()), Timestamp.valueOf(user.getGmtModified())});
+        }
+        jdbcTemplate.batchUpdate(INSERT_USER_SQL, rows);
+    }
+
+    /**
+     * 按ID批量删除用户（导入后角色绑定失败时的补偿）
+     *
+     * @param users 已插入的用户
+     */
+    public void deleteUsers(List<User> users) {
+        List<Object[]> rows = new ArrayList<>(users.size());
+        for (User user : users) {
+            rows.add(new Object[]{user.getUserId()});
+        }
+        jdbcTemplate.batchUpdate(DELETE_USER_SQL, rows);
+    }
+
+    /**
+     * 批量删除仍属于指定用户的查找键
+     *
+     * @param rows 每行为 [lookup_type, lookup_value(已规范化), user_id]
+     */
+    public void deleteLookups(List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_LOOKUP_SQL, rows);
+        }
+    }
+
+    /**
+     * 批量插入查找键，主键冲突时抛出DataIntegrityViolationException
+     *
+     * @param rows 每行为 [lookup_type, lookup_value(已规范化), user_id]
+     */
+    public void insertLookups(List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_LOOKUP_SQL, rows);
+        }
+    }
+
+    /**
+     * 在查找索引中查询已被占用的查找键
+     *
+     * @param lookupType 查找键类型
+     * @param values 已规范化的查找键值
+     * @return 已存在的查找键值
+     */
+    public Set<String> findExistingLookupValues(LookupType lookupType, Collection<String> values) {
+        if (values.isEmpty()) {
+            return new HashSet<>();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("lookupType", lookupType.name())
+                .addValue("values", values);
+        return new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "SELECT lookup_value FROM user_lookup WHERE lookup_type = :lookupType AND lookup_value IN (:values)",
+                params, String.class));
+    }
+
+    /**
+     * 未启用查找索引时，直接在用户表中查询已被未删除用户占用的值（会广播到所有分片）
+     *
+     * @param lookupType 查找键类型
+     * @param values 查找键值
+     * @return 已存在的值（小写）
+     */
+    public Set<String> findExistingUserValues(LookupType lookupType, Collection<String> values) {
+        if (values.isEmpty()) {
+            return new HashSet<>();
+        }
+        String column;
+        switch (lookupType) {
+            case USERNAME:
+                column = "username";
+                break;
+            case EMAIL:
+                column = "email";
+                break;
+            case PHONE:
+            default:
+                column = "phone";
+                break;
+        }
+        List<String> existing = namedParameterJdbcTemplate.queryForList(
+                "SELECT LOWER(" + column + ") FROM users WHERE is_deleted = 0 AND " + column + " IN (:values)",
+                new MapSqlParameterSource("values", values), String.class);
+        return new HashSet<>(existing);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.userservice.repository;
+
+/**
+ * 用户查找键投影
+ * 仅包含ID和唯一性相关字段，用于批量遍历用户表
+ */
+public interface UserKeyView {
+
+    Long getUserId();
+
+    String getUsername();
+
+    String getEmail();
+
+    String getPhone();
+}
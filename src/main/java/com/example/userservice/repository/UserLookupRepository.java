@@ -0,0 +1,69 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.entity.LookupType;
+import com.example.userservice.entity.UserLookup;
+import com.example.userservice.entity.UserLookupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * 用户查找索引数据访问层
+ * 所有查询都携带分片键 lookup_value，只路由到一个分片
+ */
+@Repository
+public interface UserLookupRepository extends JpaRepository<UserLookup, UserLookupId> {
+
+    /**
+     * 根据查找键获取用户ID
+     *
+     * @param lookupType 查找键类型
+     * @param lookupValue 查找键值
+     * @return 用户ID
+     */
+    @Query("SELECT l.userId FROM UserLookup l WHERE l.lookupType = :lookupType AND l.lookupValue = :lookupValue")
+    Optional<Long> findUserId(@Param("lookupType") LookupType lookupType, @Param("lookupValue") String lookupValue);
+
+    /**
+     * 检查查找键是否存在
+     *
+     * @param lookupType 查找键类型
+     * @param lookupValue 查找键值
+     * @return 是否存在
+     */
+    boolean existsByLookupTypeAndLookupValue(LookupType lookupType, String lookupValue);
+
+    /**
+     * 插入查找键（主键冲突即表示已被其他用户占用）
+     *
+     * @param lookupType 查找键类型名称
+     * @param lookupValue 查找键值
+     * @param userId 用户ID
+     * @return 影响行数
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO user_lookup (lookup_type, lookup_value, user_id, gmt_create) " +
+            "VALUES (:lookupType, :lookupValue, :userId, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int insert(@Param("lookupType") String lookupType, @Param("lookupValue") String lookupValue,
+               @Param("userId") Long userId);
+
+    /**
+     * 删除属于指定用户的查找键
+     *
+     * @param lookupType 查找键类型
+     * @param lookupValue 查找键值
+     * @param userId 用户ID
+     * @return 影响行数
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UserLookup l WHERE l.lookupType = :lookupType AND l.lookupValue = :lookupValue AND l.userId = :userId")
+    int deleteOwned(@Param("lookupType") LookupType lookupType, @Param("lookupValue") String lookupValue,
+               @Param("userId") Long userId);
+}
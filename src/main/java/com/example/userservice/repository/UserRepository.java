@@ -1,14 +1,24 @@
 package com.example.userservice.repository;
 
 import com.example.userservice.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * 用户数据访问层
@@ -74,6 +84,59 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.isDeleted = 0")
     Page<User> findAllActiveUsers(Pageable pageable);
 
+    /**
+     * 分页查询所有未删除的用户，不执行COUNT查询（多取一条判断是否有下一页）
+     *
+     * @param pageable 分页参数
+     * @return 用户切片
+     */
+    @Query("SELECT u FROM User u WHERE u.isDeleted = 0")
+    Slice<User> findActiveUsersSlice(Pageable pageable);
+
+    /**
+     * 统计未删除的用户数
+     *
+     * @return 用户数
+     */
+    @Query("SELECT COUNT(u) FROM User u WHERE u.isDeleted = 0")
+    long countActiveUsers();
+
+    /**
+     * 游标分页：查询第一页未删除用户（按创建时间、用户ID倒序）
+     *
+     * @param pageable 仅使用其大小作为LIMIT
+     * @return 用户列表
+     */
+    @Query("SELECT u FROM User u WHERE u.isDeleted = 0 ORDER BY u.gmtCreate DESC, u.userId DESC")
+    List<User> findActiveUsersFirst(Pageable pageable);
+
+    /**
+     * 游标分页：查询排在游标之后的未删除用户（seek谓词，不产生OFFSET）
+     *
+     * @param gmtCreate 游标记录的创建时间
+     * @param userId 游标记录的用户ID
+     * @param pageable 仅使用其大小作为LIMIT
+     * @return 用户列表
+     */
+    @Query("SELECT u FROM User u WHERE u.isDeleted = 0 AND (u.gmtCreate < :gmtCreate " +
+            "OR (u.gmtCreate = :gmtCreate AND u.userId < :userId)) ORDER BY u.gmtCreate DESC, u.userId DESC")
+    List<User> findActiveUsersBefore(@Param("gmtCreate") LocalDateTime gmtCreate, @Param("userId") Long userId,
+                                     Pageable pageable);
+
+    /**
+     * 密码哈希未被修改时替换为新哈希（登录后按新策略重新哈希）
+     *
+     * @param userId 用户ID
+     * @param oldPassword 读取时的密码哈希
+     * @param newPassword 新密码哈希
+     * @return 更新行数，期间密码已被修改时为0
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :newPassword WHERE u.userId = :userId AND u.password = :oldPassword")
+    int updatePasswordIfUnchanged(@Param("userId") Long userId, @Param("oldPassword") String oldPassword,
+                                  @Param("newPassword") String newPassword);
+
     /**
      * 根据用户ID查找未删除的用户
      *
@@ -83,8 +146,44 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.userId = :userId AND u.isDeleted = 0")
     Optional<User> findActiveUserById(@Param("userId") Long userId);
 
+    /**
+     * 根据用户ID批量查找未删除的用户
+     * 调用方应按分片分组传入ID，使查询只路由到一个物理表
+     *
+     * @param userIds 用户ID
+     * @return 用户列表，顺序不保证
+     */
+    @Query("SELECT u FROM User u WHERE u.userId IN :userIds AND u.isDeleted = 0")
+    List<User> findActiveUsersByIds(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * 按用户ID升序分批遍历未删除用户的查找键
+     *
+     * @param afterUserId 上一批最后一个用户ID（首批传0）
+     * @param pageable 批大小
+     * @return 用户查找键列表
+     */
+    @Query("SELECT u.userId AS userId, u.username AS username, u.email AS email, u.phone AS phone " +
+            "FROM User u WHERE u.isDeleted = 0 AND u.userId > :afterUserId ORDER BY u.userId")
+    List<UserKeyView> findActiveUserKeysAfter(@Param("afterUserId") Long afterUserId, Pageable pageable);
+
+    /**
+     * 流式遍历所有未删除用户（导出使用），按游标分批从数据库读取，须在事务中消费并关闭
+     * 不排序，ShardingSphere逐个物理表流式归并；实体只读，不保留快照
+     *
+     * @return 用户流
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT u FROM User u WHERE u.isDeleted = 0")
+    Stream<User> streamActiveUsers();
+
     /**
      * 模糊查询用户名
+     * 前后模糊的LIKE无法使用用户名索引，会扫描所有物理表；仅在用户名搜索索引未就绪时使用
      *
      * @param username 用户名关键字
      * @param pageable 分页参数
@@ -0,0 +1,173 @@
+package com.example.userservice.service;
+
+import com.example.userservice.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 未删除用户数近似计数
+ * 分页接口的近似总数模式使用该值代替每次请求都广播到所有分片的 COUNT(*)：
+ * 定期执行一次全量计数校准，两次校准之间按注册等写操作增量调整。
+ * 全量计数会广播到所有分片，由 background_job 表中 active_user_count 行的租约持有者一个节点执行，
+ * 结果写入该行的 progress 列，其他节点只读取该值；租约持有者宕机后其他节点在租约过期后接管。
+ * background_job 表不存在（如simple模式）时各节点自行计数
+ */
+@Component
+@Slf4j
+public class ActiveUserCounter {
+
+    private static final long UNKNOWN = -1L;
+
+    static final String JOB_NAME = "active_user_count";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 租约有效期为刷新间隔的3倍
+     */
+    @Value("${user.active-count.refresh-interval-millis:60000}")
+    private long refreshIntervalMillis;
+
+    private final String owner = ownerName();
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong count = new AtomicLong(UNKNOWN);
+
+    @PostConstruct
+    public void init() {
+        if (meterRegistry != null) {
+            Gauge.builder("user.active-count", count, c -> Math.max(c.get(), 0))
+                    .description("未删除用户数（近似值）")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 获取近似的未删除用户数，首次调用时同步计数一次
+     *
+     * @return 未删除用户数
+     */
+    public long get() {
+        if (count.get() == UNKNOWN) {
+            refresh();
+        }
+        if (count.get() == UNKNOWN) {
+            // 计数节点尚未写入结果
+            countLocally();
+        }
+        return Math.max(count.get(), 0);
+    }
+
+    /**
+     * 新增用户后调用，事务提交后生效
+     *
+     * @param delta 新增的用户数
+     */
+    public void added(long delta) {
+        afterCommit(() -> count.getAndUpdate(c -> c == UNKNOWN ? UNKNOWN : c + delta));
+    }
+
+    /**
+     * 定期校准增量调整的偏差（包括其他节点上的写入）：持有租约时全量计数并写入共享结果，否则读取共享结果
+     */
+    @Scheduled(initialDelayString = "${user.active-count.refresh-interval-millis:60000}",
+            fixedDelayString = "${user.active-count.refresh-interval-millis:60000}")
+    public void refresh() {
+        long now = System.currentTimeMillis();
+        boolean leader;
+        try {
+            leader = holdLease(now);
+        } catch (DataAccessException e) {
+            log.debug("计数租约不可用，本节点自行计数: {}", e.getMessage());
+            countLocally();
+            return;
+        }
+        try {
+            if (leader) {
+                long counted = userRepository.countActiveUsers();
+                count.set(counted);
+                jdbcTemplate.update("UPDATE background_job SET progress = ?, completed_at = ? WHERE job_name = ? AND owner = ?",
+                        counted, now, JOB_NAME, owner);
+            } else {
+                List<Long> shared = jdbcTemplate.queryForList(
+                        "SELECT progress FROM background_job WHERE job_name = ? AND completed_at > 0", Long.class, JOB_NAME);
+                if (!shared.isEmpty()) {
+                    count.set(shared.get(0));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("未删除用户计数刷新失败，继续使用原值: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 续约或以插入、按过期时间CAS更新的方式获取计数租约
+     */
+    boolean holdLease(long now) {
+        long expiresAt = now + refreshIntervalMillis * 3;
+        if (jdbcTemplate.update("UPDATE background_job SET owner = ?, lease_expires_at = ? " +
+                "WHERE job_name = ? AND (owner = ? OR lease_expires_at < ?)", owner, expiresAt, JOB_NAME, owner, now) > 0) {
+            return true;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO background_job (job_name, owner, lease_expires_at, progress, completed_at) " +
+                    "VALUES (?, ?, ?, 0, 0)", JOB_NAME, owner, expiresAt);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private void countLocally() {
+        try {
+            count.set(userRepository.countActiveUsers());
+        } catch (Exception e) {
+            log.warn("未删除用户计数刷新失败，继续使用原值: {}", e.getMessage());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static String ownerName() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + "/" + ProcessHandle.current().pid() + "/" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.SnowflakeIdentifierGenerator;
+import com.example.userservice.util.SnowflakeIdGenerator;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 雪花ID worker-id租约管理
+ * 每个节点启动时在 id_worker_lease 表中租用一个未被占用（或租约已过期）的worker-id，并定期续约：
+ * <ul>
+ *     <li>租约表记录每个worker-id最后使用的时间戳，接管或重启后从该时间之后开始生成，不受节点间时钟差影响</li>
+ *     <li>续约失败（租约已被接管）时重新租用新的worker-id；租约过期前未能续约则暂停生成ID</li>
+ *     <li>启用租约但启动时租约表不可用：配置了 id.worker.fallback-id 时临时使用该值并在续约周期中重试租用，
+ *     未配置时启动失败，以免多个节点推导出相同的worker-id而生成重复主键</li>
+ *     <li>未启用租约时（如simple模式）使用配置值，否则由主机名和进程号推导，仅适用于单节点</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class IdWorkerLeaseManager {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${id.worker.lease.enabled:true}")
+    private boolean leaseEnabled;
+
+    @Value("${id.worker.lease.ttl-millis:60000}")
+    private long ttlMillis;
+
+    /**
+     * 本地worker-id：未启用租约时使用（-1表示由主机名和进程号推导）；启用租约时仅在显式配置后作为租约表不可用时的临时值
+     */
+    @Value("${id.worker.fallback-id:-1}")
+    private int fallbackWorkerId;
+
+    @Value("${id.snowflake.max-clock-drift-millis:1000}")
+    private long maxClockDriftMillis;
+
+    private final String owner = ownerName();
+
+    private volatile SnowflakeIdGenerator generator;
+
+    private volatile boolean leased;
+
+    @PostConstruct
+    public void init() {
+        if (leaseEnabled) {
+            try {
+                acquire(0L);
+            } catch (Exception e) {
+                if (fallbackWorkerId < 0) {
+                    throw new IllegalStateException("worker-id租约不可用且未配置 id.worker.fallback-id，拒绝启动以免生成重复ID", e);
+                }
+                log.warn("worker-id租约不可用，临时使用配置的worker-id并在续约时重试租用: fallbackId={}, error={}",
+                        fallbackWorkerId, e.getMessage());
+            }
+        }
+        if (generator == null) {
+            int workerId = fallbackWorkerId >= 0 ? fallbackWorkerId
+                    : Math.floorMod(owner.hashCode(), SnowflakeIdGenerator.MAX_WORKER_ID + 1);
+            generator = new SnowflakeIdGenerator(workerId, 0L, maxClockDriftMillis);
+            log.info("雪花ID生成器使用本地worker-id: workerId={}", workerId);
+        }
+        SnowflakeIdentifierGenerator.install(this::nextId);
+        if (meterRegistry != null) {
+            Gauge.builder("id.worker.id", this, m -> m.generator.getWorkerId())
+                    .description("当前使用的雪花ID worker-id")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 生成下一个ID
+     *
+     * @return ID
+     */
+    public long nextId() {
+        return generator.nextId();
+    }
+
+    /**
+     * 定期续约，同时持久化最后使用的时间戳；尚未持有租约时重试租用
+     */
+    @Scheduled(initialDelayString = "${id.worker.lease.renew-interval-millis:10000}",
+            fixedDelayString = "${id.worker.lease.renew-interval-millis:10000}")
+    public void renew() {
+        if (!leaseEnabled) {
+            return;
+        }
+        SnowflakeIdGenerator current = generator;
+        if (!leased) {
+            try {
+                acquire(current.lastTimestamp() + 1);
+            } catch (Exception e) {
+                log.warn("worker-id租约仍不可用，继续使用配置的worker-id: workerId={}, error={}", current.getWorkerId(), e.getMessage());
+            }
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            int updated = jdbcTemplate.update("UPDATE id_worker_lease SET lease_expires_at = ?, last_timestamp = ? " +
+                    "WHERE worker_id = ? AND owner = ?", now + ttlMillis, current.lastTimestamp(), current.getWorkerId(), owner);
+            if (updated > 0) {
+                current.setValidUntil(validUntil(now));
+                return;
+            }
+            log.error("worker-id租约已被其他节点接管，重新租用: workerId={}", current.getWorkerId());
+            acquire(current.lastTimestamp() + 1);
+        } catch (Exception e) {
+            // 租约到期前仍可继续生成，到期后暂停
+            log.warn("worker-id续约失败，租约有效期内继续使用: workerId={}, error={}", current.getWorkerId(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void release() {
+        if (!leased) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("UPDATE id_worker_lease SET lease_expires_at = 0, last_timestamp = ? " +
+                    "WHERE worker_id = ? AND owner = ?", generator.lastTimestamp(), generator.getWorkerId(), owner);
+            log.info("worker-id租约已释放: workerId={}", generator.getWorkerId());
+        } catch (Exception e) {
+            log.warn("worker-id租约释放失败，将在租约过期后自动释放: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从随机位置开始查找空闲或已过期的worker-id，以插入或按过期时间CAS更新的方式占用
+     *
+     * @param notBefore 新生成器的最早时间戳
+     */
+    private void acquire(long notBefore) {
+        long now = System.currentTimeMillis();
+        Map<Integer, long[]> leases = new HashMap<>();
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT worker_id, lease_expires_at, last_timestamp FROM id_worker_lease");
+        for (Map<String, Object> row : rows) {
+            leases.put(((Number) row.get("worker_id")).intValue(), new long[]{
+                    ((Number) row.get("lease_expires_at")).longValue(), ((Number) row.get("last_timestamp")).longValue()});
+        }
+
+        int workerCount = SnowflakeIdGenerator.MAX_WORKER_ID + 1;
+        int start = ThreadLocalRandom.current().nextInt(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            int workerId = (start + i) % workerCount;
+            long[] lease = leases.get(workerId);
+            long lastTimestamp;
+            if (lease == null) {
+                try {
+                    jdbcTemplate.update("INSERT INTO id_worker_lease (worker_id, owner, lease_expires_at, last_timestamp) " +
+                            "VALUES (?, ?, ?, 0)", workerId, owner, now + ttlMillis);
+                } catch (DuplicateKeyException e) {
+                    continue;
+                }
+                lastTimestamp = 0L;
+            } else if (lease[0] < now) {
+                int updated = jdbcTemplate.update("UPDATE id_worker_lease SET owner = ?, lease_expires_at = ? " +
+                        "WHERE worker_id = ? AND lease_expires_at = ?", owner, now + ttlMillis, workerId, lease[0]);
+                if (updated == 0) {
+                    continue;
+                }
+                lastTimestamp = lease[1];
+            } else {
+                continue;
+            }
+            SnowflakeIdGenerator next = new SnowflakeIdGenerator(workerId,
+                    Math.max(notBefore, lastTimestamp + 1), maxClockDriftMillis);
+            next.setValidUntil(validUntil(now));
+            generator = next;
+            leased = true;
+            log.info("worker-id租约已获取: workerId={}, owner={}, lastTimestamp={}", workerId, owner, lastTimestamp);
+            return;
+        }
+        throw new IllegalStateException("没有可用的worker-id");
+    }
+
+    /**
+     * 本节点使用租约的截止时间，比数据库中的过期时间提前1/4个租期，为节点间时钟差留出余量
+     */
+    private long validUntil(long now) {
+        return now + ttlMillis - ttlMillis / 4;
+    }
+
+    private static String ownerName() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + "/" + ProcessHandle.current().pid() + "/" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.userservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 登录限流器
+ * 在查库和BCrypt校验之前，分别按用户名和客户端IP进行令牌桶限流，连续失败后按指数退避锁定一段时间。
+ *
+ * 令牌桶按用户名/IP精确存放在有界缓存中，每个键的状态互相独立，不同用户名不会共享退避；
+ * 在键上原子替换不可变的桶状态。长时间无尝试的键自动过期，键数超过上限时淘汰最少使用的键。
+ *
+ * 失败次数是漏桶计数：每隔 failure-decay-seconds 遗忘一次失败，与是否有新的尝试无关。
+ * 共用出口IP（NAT、办公网络）上偶发的输错密码不会无限累积，只有失败速度超过遗忘速度时才会持续退避
+ */
+@Component
+@Slf4j
+public class LoginThrottle {
+
+    /**
+     * 拒绝原因
+     */
+    public enum Rejection {
+        USERNAME, IP, BACKOFF
+    }
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${login.throttle.enabled:true}")
+    private boolean enabled;
+
+    @Value("${login.throttle.maximum-keys:100000}")
+    private long maximumKeys;
+
+    @Value("${login.throttle.username.capacity:5}")
+    private int usernameCapacity;
+
+    @Value("${login.throttle.username.refill-per-minute:10}")
+    private int usernameRefillPerMinute;
+
+    @Value("${login.throttle.ip.capacity:20}")
+    private int ipCapacity;
+
+    @Value("${login.throttle.ip.refill-per-minute:60}")
+    private int ipRefillPerMinute;
+
+    @Value("${login.throttle.backoff.after-failures:3}")
+    private int backoffAfterFailures;
+
+    @Value("${login.throttle.backoff.base-millis:1000}")
+    private long backoffBaseMillis;
+
+    @Value("${login.throttle.backoff.max-millis:300000}")
+    private long backoffMaxMillis;
+
+    /**
+     * 每遗忘一次失败所需的时间
+     */
+    @Value("${login.throttle.failure-decay-seconds:60}")
+    private long failureDecaySeconds;
+
+    /**
+     * 单调时钟（纳秒），测试中可替换
+     */
+    private LongSupplier nanoClock = System::nanoTime;
+
+    private ConcurrentMap<String, Bucket> usernameBuckets;
+
+    private ConcurrentMap<String, Bucket> ipBuckets;
+
+    private Counter usernameRejections;
+    private Counter ipRejections;
+    private Counter backoffRejections;
+
+    @PostConstruct
+    public void init() {
+        this.usernameBuckets = newBuckets();
+        this.ipBuckets = newBuckets();
+        if (meterRegistry != null) {
+            usernameRejections = rejectionCounter("username");
+            ipRejections = rejectionCounter("ip");
+            backoffRejections = rejectionCounter("backoff");
+        }
+        log.info("登录限流初始化: enabled={}, maximumKeys={}", enabled, maximumKeys);
+    }
+
+    /**
+     * 登录前检查是否放行，放行时分别从用户名桶和IP桶中扣减一个令牌
+     *
+     * @param username 用户名
+     * @param clientIp 客户端IP，可为空
+     * @return 拒绝原因，放行时返回null
+     */
+    public Rejection tryAcquire(String username, String clientIp) {
+        if (!enabled) {
+            return null;
+        }
+        long now = nanoClock.getAsLong();
+        Rejection rejection = acquire(usernameBuckets, key(username), usernameCapacity, usernameRefillPerMinute,
+                Rejection.USERNAME, now);
+        if (rejection == null && clientIp != null) {
+            rejection = acquire(ipBuckets, clientIp, ipCapacity, ipRefillPerMinute, Rejection.IP, now);
+        }
+        if (rejection != null) {
+            count(rejection);
+        }
+        return rejection;
+    }
+
+    /**
+     * 登录失败后调用，累计失败次数并在达到阈值后开始指数退避
+     */
+    public void onFailure(String username, String clientIp) {
+        if (!enabled) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        recordFailure(usernameBuckets, key(username), usernameCapacity, now);
+        if (clientIp != null) {
+            recordFailure(ipBuckets, clientIp, ipCapacity, now);
+        }
+    }
+
+    /**
+     * 登录成功后调用，清除该用户名的失败次数（IP的失败次数保留，避免攻击者用自有账号解除IP退避）
+     */
+    public void onSuccess(String username) {
+        if (!enabled) {
+            return;
+        }
+        usernameBuckets.computeIfPresent(key(username), (key, bucket) ->
+                bucket.failures == 0 ? bucket : new Bucket(bucket.tokens, bucket.updatedAt, 0, 0L, 0L));
+    }
+
+    private Rejection acquire(ConcurrentMap<String, Bucket> buckets, String key, int capacity, int refillPerMinute,
+                              Rejection exhausted, long now) {
+        Rejection[] rejection = new Rejection[1];
+        buckets.compute(key, (k, bucket) -> {
+            Bucket current = bucket != null ? refill(bucket, capacity, refillPerMinute, now) : new Bucket(capacity, now, 0, now, 0L);
+            if (current.failures >= backoffAfterFailures && now - current.blockedUntil < 0) {
+                rejection[0] = Rejection.BACKOFF;
+                return current;
+            }
+            if (current.tokens < 1) {
+                rejection[0] = exhausted;
+                return current;
+            }
+            return new Bucket(current.tokens - 1, now, current.failures, current.failuresAt, current.blockedUntil);
+        });
+        return rejection[0];
+    }
+
+    private void recordFailure(ConcurrentMap<String, Bucket> buckets, String key, int capacity, long now) {
+        buckets.compute(key, (k, bucket) -> {
+            Bucket current = bucket != null ? bucket : new Bucket(capacity, now, 0, now, 0L);
+            double failures = decayedFailures(current, now) + 1;
+            long blockedUntil = current.blockedUntil;
+            if (failures >= backoffAfterFailures) {
+                int exponent = (int) Math.min(failures - backoffAfterFailures, 30);
+                long backoffMillis = Math.min(backoffBaseMillis << exponent, backoffMaxMillis);
+                blockedUntil = now + TimeUnit.MILLISECONDS.toNanos(backoffMillis);
+            }
+            return new Bucket(current.tokens, current.updatedAt, failures, now, blockedUntil);
+        });
+    }
+
+    /**
+     * 按流逝时间补充令牌，失败次数不在此处变化
+     */
+    private Bucket refill(Bucket bucket, int capacity, int refillPerMinute, long now) {
+        long elapsed = now - bucket.updatedAt;
+        double tokens = Math.min(capacity, bucket.tokens + elapsed * refillPerMinute / (double) TimeUnit.MINUTES.toNanos(1));
+        return new Bucket(tokens, now, bucket.failures, bucket.failuresAt, bucket.blockedUntil);
+    }
+
+    /**
+     * 按距上次记录失败的时间遗忘失败次数
+     */
+    private double decayedFailures(Bucket bucket, long now) {
+        double forgotten = (now - bucket.failuresAt) / (double) TimeUnit.SECONDS.toNanos(Math.max(failureDecaySeconds, 1));
+        return Math.max(0, bucket.failures - forgotten);
+    }
+
+    /**
+     * 键在遗忘退避阈值次失败所需的时间（且不短于最长退避时间）内无尝试即过期，过期时失败次数已基本遗忘
+     */
+    private ConcurrentMap<String, Bucket> newBuckets() {
+        long idleMillis = Math.max(TimeUnit.SECONDS.toMillis(failureDecaySeconds) * backoffAfterFailures, backoffMaxMillis);
+        Cache<String, Bucket> cache = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterAccess(Duration.ofMillis(idleMillis))
+                .build();
+        return cache.asMap();
+    }
+
+    private static String key(String username) {
+        return username == null ? "" : UserLookupService.normalize(username);
+    }
+
+    private void count(Rejection rejection) {
+        if (meterRegistry == null) {
+            return;
+        }
+        switch (rejection) {
+            case USERNAME:
+                usernameRejections.increment();
+                break;
+            case IP:
+                ipRejections.increment();
+                break;
+            default:
+                backoffRejections.increment();
+                break;
+        }
+    }
+
+    private Counter rejectionCounter(String reason) {
+        return Counter.builder("login.throttle.rejected")
+                .description("登录限流拒绝次数")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 不可变的桶状态，在键上整体替换
+     */
+    private static final class Bucket {
+        private final double tokens;
+        private final long updatedAt;
+        private final double failures;
+        private final long failuresAt;
+        private final long blockedUntil;
+
+        private Bucket(double tokens, long updatedAt, double failures, long failuresAt, long blockedUntil) {
+            this.tokens = tokens;
+            this.updatedAt = updatedAt;
+            this.failures = failures;
+            this.failuresAt = failuresAt;
+            this.blockedUntil = blockedUntil;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.userservice.service;
+
+import com.example.userservice.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * 密码哈希执行器
+ * BCrypt计算是CPU密集型操作，放在与CPU核数相同的专用线程池中执行，并使用有界队列：
+ * 登录高峰时排队的请求数有上限，超出部分立即以 503 拒绝，不会占满Tomcat线程拖慢其他读接口。
+ *
+ * 哈希格式为 {id}hash，新密码按 password.hash.algorithm 编码，bcrypt/argon2/pbkdf2 均可校验；
+ * 未带前缀的历史哈希按BCrypt校验。BCrypt强度是集群统一的配置值：各节点硬件不同时按本机标定会得到不同强度，
+ * 登录落在不同节点上时 needsRehash 的判断来回翻转，反复重新哈希。启动时只按目标耗时测算并记录建议强度
+ */
+@Component
+@Slf4j
+public class PasswordHasher {
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 线程数，0表示使用CPU核数
+     */
+    @Value("${password.hash.threads:0}")
+    private int threads;
+
+    @Value("${password.hash.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${password.hash.timeout-millis:5000}")
+    private long timeoutMillis;
+
+    @Value("${password.hash.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    /**
+     * 新密码使用的算法：bcrypt、argon2 或 pbkdf2
+     */
+    @Value("${password.hash.algorithm:bcrypt}")
+    private String algorithm;
+
+    /**
+     * BCrypt强度，所有节点必须一致；默认与历史哈希的强度相同
+     */
+    @Value("${password.hash.bcrypt.strength:10}")
+    private int bcryptStrength;
+
+    /**
+     * 测算建议强度时的基准强度
+     */
+    @Value("${password.hash.bcrypt.min-strength:10}")
+    private int bcryptMinStrength;
+
+    /**
+     * 建议强度对应的单次哈希目标耗时，0表示启动时不测算
+     */
+    @Value("${password.hash.target-millis:100}")
+    private long targetMillis;
+
+    private static final int BCRYPT_MAX_STRENGTH = 16;
+
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("^\\$2[aby]?\\$\\d\\d\\$[./0-9A-Za-z]{53}$");
+
+    private PasswordEncoder passwordEncoder;
+
+    private ThreadPoolExecutor executor;
+
+    private Timer waitTimer;
+
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        int strength = bcryptStrength;
+        if (targetMillis > 0) {
+            suggestBcryptStrength();
+        }
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", new BCryptPasswordEncoder(strength));
+        encoders.put("argon2", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        encoders.put("pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        if (!encoders.containsKey(algorithm)) {
+            throw new IllegalStateException("不支持的密码哈希算法: " + algorithm);
+        }
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(algorithm, encoders);
+        // 历史数据为不带前缀的BCrypt哈希
+        delegating.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        this.passwordEncoder = delegating;
+        log.info("密码哈希策略: algorithm={}, bcryptStrength={}", algorithm, strength);
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        if (meterRegistry != null) {
+            Gauge.builder("password.hash.queue.depth", executor, e -> e.getQueue().size())
+                    .description("等待执行的密码哈希任务数")
+                    .register(meterRegistry);
+            Gauge.builder("password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                    .description("正在执行的密码哈希任务数")
+                    .register(meterRegistry);
+            waitTimer = Timer.builder("password.hash.wait")
+                    .description("密码哈希任务在队列中的等待时间")
+                    .register(meterRegistry);
+            rejectedCounter = Counter.builder("password.hash.rejected")
+                    .description("因队列已满被拒绝的密码哈希任务数")
+                    .register(meterRegistry);
+        }
+        log.info("密码哈希线程池初始化: threads={}, queueCapacity={}", poolSize, queueCapacity);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 计算密码哈希
+     *
+     * @param rawPassword 明文密码
+     * @return 密码哈希
+     * @throws ServiceBusyException 线程池队列已满或等待超时
+     */
+    public String encode(String rawPassword) {
+        return execute(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * 校验密码
+     *
+     * @param rawPassword 明文密码
+     * @param encodedPassword 密码哈希
+     * @return 是否匹配
+     * @throws ServiceBusyException 线程池队列已满或等待超时
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return execute(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * 判断已存储的哈希是否与当前策略不一致（算法不同、强度更低或为旧格式），需要重新计算
+     *
+     * @param encodedPassword 密码哈希
+     * @return 是否需要重新哈希
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * 判断是否为可校验的密码哈希（批量导入只接受已哈希的密码）
+     * 支持 {bcrypt}/{argon2}/{pbkdf2} 前缀格式和不带前缀的BCrypt哈希
+     *
+     * @param encodedPassword 密码哈希
+     * @return 是否支持
+     */
+    public boolean isSupportedHash(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        if (!encodedPassword.startsWith("{")) {
+            return BCRYPT_PATTERN.matcher(encodedPassword).matches();
+        }
+        int end = encodedPassword.indexOf('}');
+        if (end < 0) {
+            return false;
+        }
+        String id = encodedPassword.substring(1, end);
+        String hash = encodedPassword.substring(end + 1);
+        switch (id) {
+            case "bcrypt":
+                return BCRYPT_PATTERN.matcher(hash).matches();
+            case "argon2":
+            case "pbkdf2":
+                return !hash.isEmpty();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 异步计算密码哈希，不阻塞调用方；队列已满时返回失败的Future而不是抛出异常
+     *
+     * @param rawPassword 明文密码
+     * @return 密码哈希
+     */
+    public CompletableFuture<String> encodeAsync(String rawPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> passwordEncoder.encode(rawPassword), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 按目标耗时测算本机的建议BCrypt强度：强度每加1耗时翻倍，以基准强度的实测耗时推算
+     * 只记录日志，不改变实际使用的强度；应在集群中最慢的机型上参考该值统一配置
+     */
+    private int suggestBcryptStrength() {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(bcryptMinStrength);
+        String hash = probe.encode("calibration");
+        long[] samples = new long[5];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            probe.matches("calibration", hash);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        double baseMillis = Math.max(samples[samples.length / 2] / 1_000_000.0, 0.001);
+        int strength = bcryptMinStrength + (int) Math.floor(Math.log(targetMillis / baseMillis) / Math.log(2));
+        strength = Math.max(bcryptMinStrength, Math.min(strength, BCRYPT_MAX_STRENGTH));
+        if (strength != bcryptStrength) {
+            log.info("BCrypt强度测算: strength{}耗时{}ms, 目标{}ms, 本机建议strength={}, 当前配置strength={}，" +
+                            "如需调整请在所有节点统一修改 password.hash.bcrypt.strength",
+                    bcryptMinStrength, String.format("%.1f", baseMillis), targetMillis, strength, bcryptStrength);
+        } else {
+            log.info("BCrypt强度测算: strength{}耗时{}ms, 目标{}ms, 与当前配置strength={}一致",
+                    bcryptMinStrength, String.format("%.1f", baseMillis), targetMillis, bcryptStrength);
+        }
+        return strength;
+    }
+
+    private <T> T execute(Callable<T> task) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                if (waitTimer != null) {
+                    waitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                }
+                return task.call();
+            });
+        } catch (RejectedExecutionException e) {
+            if (rejectedCounter != null) {
+                rejectedCounter.increment();
+            }
+            throw new ServiceBusyException("系统繁忙，请稍后重试", retryAfterSeconds);
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ServiceBusyException("系统繁忙，请稍后重试", retryAfterSeconds);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("密码哈希计算失败", cause);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("密码哈希计算被中断", e);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.LookupType;
+import com.example.userservice.repository.UserKeyView;
+import com.example.userservice.repository.UserRepository;
+import com.example.userservice.util.CountingBloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 用户唯一键存在性过滤器
+ * 为未删除用户的用户名、邮箱、手机号各维护一个计数布隆过滤器，
+ * 判定“一定不存在”时注册校验和登录查找可直接跳过数据库。
+ *
+ * 一致性约定：只允许误判为“可能存在”，不允许漏判。因此新增立即生效，提交时再补入此后才开始或完成的重建；
+ * 释放的键（修改邮箱/手机号的旧值）不从过滤器中删除：本节点无法确认该键曾被加入（其他节点的广播可能丢失），
+ * 递减共享计数器可能造成其他键漏判，释放的键在定期重建时回收。
+ * 已判定可能存在的键不再重复加入，元素数不因广播或提交后的补加而虚增。
+ * 过滤器为各节点本地维护，其他节点新增的用户经缓存失效广播加入，广播到达前存在漏判，调用方须有数据库兜底
+ */
+@Component
+@Slf4j
+public class UserExistenceFilter {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${user.bloom-filter.enabled:false}")
+    private boolean enabled;
+
+    @Value("${user.bloom-filter.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${user.bloom-filter.fpp:0.01}")
+    private double fpp;
+
+    @Value("${user.bloom-filter.build-batch-size:1000}")
+    private int buildBatchSize;
+
+    /**
+     * 当前提供查询的过滤器，构建完成前为null
+     */
+    private volatile Map<LookupType, CountingBloomFilter> current;
+
+    /**
+     * 正在重建的过滤器
+     */
+    private volatile Map<LookupType, CountingBloomFilter> building;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    private final Map<LookupType, Counter> shortCircuitCounters = new EnumMap<>(LookupType.class);
+
+    @PostConstruct
+    public void init() {
+        if (!enabled || meterRegistry == null) {
+            return;
+        }
+        for (LookupType type : LookupType.values()) {
+            String tag = type.name().toLowerCase();
+            Gauge.builder("user.bloom-filter.elements", this, f -> f.metric(type, CountingBloomFilter::approximateElementCount))
+                    .tag("type", tag).register(meterRegistry);
+            Gauge.builder("user.bloom-filter.expected-fpp", this, f -> f.metric(type, CountingBloomFilter::expectedFpp))
+                    .tag("type", tag).register(meterRegistry);
+            Gauge.builder("user.bloom-filter.size-bytes", this, f -> f.metric(type, CountingBloomFilter::sizeInBytes))
+                    .tag("type", tag).register(meterRegistry);
+            shortCircuitCounters.put(type, Counter.builder("user.bloom-filter.short-circuits")
+                    .description("布隆过滤器判定不存在而跳过数据库的次数")
+                    .tag("type", tag).register(meterRegistry));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 判断查找键是否可能已被使用
+     *
+     * @param type 查找键类型
+     * @param value 查找键值
+     * @return false表示一定未被使用；过滤器未启用或未就绪时始终返回true
+     */
+    public boolean mightContain(LookupType type, String value) {
+        Map<LookupType, CountingBloomFilter> filters = current;
+        if (!enabled || filters == null) {
+            return true;
+        }
+        boolean mightContain = filters.get(type).mightContain(UserLookupService.normalize(value));
+        if (!mightContain && shortCircuitCounters.containsKey(type)) {
+            shortCircuitCounters.get(type).increment();
+        }
+        return mightContain;
+    }
+
+    /**
+     * 记录新增的查找键（注册或修改邮箱/手机号）
+     */
+    public void add(LookupType type, String value) {
+        if (!enabled || value == null) {
+            return;
+        }
+        String normalized = UserLookupService.normalize(value);
+        Map<LookupType, CountingBloomFilter> addedBuilding = building;
+        Map<LookupType, CountingBloomFilter> addedCurrent = current;
+        addNow(type, normalized);
+        // 提交后只补入此后才开始的重建（其遍历可能读不到未提交的数据），以及期间已完成切换的新过滤器
+        afterCommit(() -> {
+            Map<LookupType, CountingBloomFilter> next = building;
+            if (next != null && next != addedBuilding) {
+                addIfAbsent(next, type, normalized);
+            }
+            Map<LookupType, CountingBloomFilter> filters = current;
+            if (filters != null && filters != addedCurrent && filters != addedBuilding && filters != next) {
+                addIfAbsent(filters, type, normalized);
+            }
+        });
+    }
+
+    /**
+     * 启动后在后台构建过滤器
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::rebuild, "user-bloom-filter-build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 定期重建，回收饱和计数器并纠正累计的偏差
+     */
+    @Scheduled(initialDelayString = "${user.bloom-filter.rebuild-interval-millis:3600000}",
+            fixedDelayString = "${user.bloom-filter.rebuild-interval-millis:3600000}")
+    public void rebuild() {
+        if (!enabled || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            Map<LookupType, CountingBloomFilter> filters = new EnumMap<>(LookupType.class);
+            for (LookupType type : LookupType.values()) {
+                filters.put(type, CountingBloomFilter.create(expectedInsertions, fpp));
+            }
+            // 先发布到building再开始遍历，之后提交的新增会同时写入新过滤器
+            building = filters;
+
+            long lastUserId = 0L;
+            List<UserKeyView> batch;
+            do {
+                batch = userRepository.findActiveUserKeysAfter(lastUserId, PageRequest.of(0, buildBatchSize));
+                for (UserKeyView key : batch) {
+                    addTo(filters, LookupType.USERNAME, key.getUsername());
+                    addTo(filters, LookupType.EMAIL, key.getEmail());
+                    addTo(filters, LookupType.PHONE, key.getPhone());
+                    lastUserId = key.getUserId();
+                }
+            } while (batch.size() == buildBatchSize);
+
+            current = filters;
+            log.info("用户布隆过滤器构建完成: users={}, 耗时{}ms",
+                    filters.get(LookupType.USERNAME).approximateElementCount(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("用户布隆过滤器构建失败，继续使用原过滤器", e);
+        } finally {
+            building = null;
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * 先读building再读current：若读到building为null，则要么重建尚未开始（之后的遍历能读到已提交数据），
+     * 要么重建已完成切换（随后读到的current即为新过滤器）
+     */
+    private void addNow(LookupType type, String normalized) {
+        Map<LookupType, CountingBloomFilter> next = building;
+        if (next != null) {
+            addIfAbsent(next, type, normalized);
+        }
+        Map<LookupType, CountingBloomFilter> filters = current;
+        if (filters != null && filters != next) {
+            addIfAbsent(filters, type, normalized);
+        }
+    }
+
+    private static void addIfAbsent(Map<LookupType, CountingBloomFilter> filters, LookupType type, String normalized) {
+        CountingBloomFilter filter = filters.get(type);
+        if (!filter.mightContain(normalized)) {
+            filter.add(normalized);
+        }
+    }
+
+    private static void addTo(Map<LookupType, CountingBloomFilter> filters, LookupType type, String value) {
+        if (value != null) {
+            addIfAbsent(filters, type, UserLookupService.normalize(value));
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private double metric(LookupType type, ToDoubleFunction<CountingBloomFilter> getter) {
+        Map<LookupType, CountingBloomFilter> filters = current;
+        return filters == null ? 0 : getter.applyAsDouble(filters.get(type));
+    }
+}
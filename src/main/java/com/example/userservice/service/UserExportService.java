@@ -0,0 +1,146 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.ApiResponse;
+import com.example.userservice.entity.User;
+import com.example.userservice.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 用户导出服务（供数据分析使用）
+ * 在只读事务中以数据库游标流式读取未删除用户，逐行写入响应输出流：
+ * <ul>
+ *     <li>JDBC按fetch size分批读取（MySQL需开启 useCursorFetch），每行写出后即从持久化上下文中分离，堆内存占用与总行数无关</li>
+ *     <li>写入阻塞在响应输出流上，客户端读取慢时游标读取随之放慢</li>
+ *     <li>每个导出占用每个物理表一个数据库连接，同时进行的导出数受 user.export.max-concurrent 限制</li>
+ * </ul>
+ * 并发许可在响应体开始执行时获取、结束时释放：响应体因超时或客户端断开而未执行时不会占住许可。
+ * 响应体在 {@link com.example.userservice.config.WebConfig} 配置的导出专用线程池中执行
+ */
+@Service
+@Slf4j
+public class UserExportService {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${user.export.max-concurrent:1}")
+    private int maxConcurrent;
+
+    private Semaphore permits;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    private Counter exportedRows;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(Math.max(maxConcurrent, 1));
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        if (meterRegistry != null) {
+            exportedRows = Counter.builder("user.export.rows")
+                    .description("导出的用户行数")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 校验权限并准备导出，返回的响应体由MVC异步线程执行写出
+     *
+     * @param format 导出格式：ndjson 或 csv
+     * @param currentUserId 当前用户ID
+     * @return 导出响应体
+     */
+    public ApiResponse<StreamingResponseBody> export(String format, Long currentUserId) {
+        if (!userService.isAdmin(currentUserId)) {
+            return ApiResponse.error(403, "无权限导出用户");
+        }
+        if (!"ndjson".equalsIgnoreCase(format) && !"csv".equalsIgnoreCase(format)) {
+            return ApiResponse.error(400, "不支持的导出格式: " + format);
+        }
+        // 预先检查以便直接返回429；同时通过检查的请求在响应体中排队等待许可
+        if (permits.availablePermits() == 0) {
+            return ApiResponse.error(429, "已有导出任务在执行，请稍后再试");
+        }
+        return ApiResponse.success(out -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                // 异步请求超时后任务被取消
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待导出许可被中断");
+            }
+            try {
+                log.info("用户导出开始: format={}, operator={}", format, currentUserId);
+                write(format, out, currentUserId);
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    private void write(String format, OutputStream out, Long currentUserId) throws IOException {
+        long startNanos = System.nanoTime();
+        UserExportWriter writer = new UserExportWriter(out, format, objectMapper);
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<User> users = userRepository.streamActiveUsers()) {
+                    users.forEach(user -> {
+                        try {
+                            writer.write(user);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        entityManager.detach(user);
+                    });
+                }
+            });
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            // 通常是客户端断开连接
+            log.warn("用户导出中断: rows={}, operator={}, error={}", writer.rows(), currentUserId, e.getCause().getMessage());
+            throw e.getCause();
+        } finally {
+            if (exportedRows != null) {
+                exportedRows.increment(writer.rows());
+            }
+        }
+        log.info("用户导出完成: rows={}, elapsedMillis={}, operator={}", writer.rows(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), currentUserId);
+    }
+}
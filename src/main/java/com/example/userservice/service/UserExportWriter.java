@@ -0,0 +1,102 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.User;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 用户导出的流式写入器，逐行写出，不保留已写出的记录
+ * <ul>
+ *     <li>ndjson：每行一个JSON对象，字段为 userId、username、email、phone、gmtCreate、gmtModified</li>
+ *     <li>csv：首行为表头，列同上；包含逗号、引号或换行的字段按RFC 4180加引号转义</li>
+ * </ul>
+ * 不输出密码哈希。写入经过缓冲，输出流阻塞时写入方随之阻塞
+ */
+public class UserExportWriter implements Flushable {
+
+    private static final String CSV_HEADER = "userId,username,email,phone,gmtCreate,gmtModified";
+
+    private final Writer writer;
+    private final JsonGenerator generator;
+
+    private long rows;
+
+    public UserExportWriter(OutputStream out, String format, ObjectMapper objectMapper) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        if ("csv".equalsIgnoreCase(format)) {
+            this.generator = null;
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        } else {
+            this.generator = objectMapper.getFactory().createGenerator(writer);
+            // 每个对象后自行换行，不使用默认的空格分隔
+            generator.setRootValueSeparator(null);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+    }
+
+    /**
+     * 写出一个用户
+     *
+     * @param user 用户
+     */
+    public void write(User user) throws IOException {
+        if (generator != null) {
+            generator.writeStartObject();
+            generator.writeNumberField("userId", user.getUserId());
+            generator.writeStringField("username", user.getUsername());
+            generator.writeStringField("email", user.getEmail());
+            generator.writeStringField("phone", user.getPhone());
+            generator.writeStringField("gmtCreate", user.getGmtCreate() != null ? user.getGmtCreate().toString() : null);
+            generator.writeStringField("gmtModified", user.getGmtModified() != null ? user.getGmtModified().toString() : null);
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } else {
+            writer.write(String.valueOf(user.getUserId()));
+            writeCsvField(user.getUsername());
+            writeCsvField(user.getEmail());
+            writeCsvField(user.getPhone());
+            writeCsvField(user.getGmtCreate() != null ? user.getGmtCreate().toString() : null);
+            writeCsvField(user.getGmtModified() != null ? user.getGmtModified().toString() : null);
+            writer.write('\n');
+        }
+        rows++;
+    }
+
+    /**
+     * 已写出的记录数
+     */
+    public long rows() {
+        return rows;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (generator != null) {
+            generator.flush();
+        }
+        writer.flush();
+    }
+
+    private void writeCsvField(String value) throws IOException {
+        writer.write(',');
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserImportJobResponse;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量导入任务及其进度，计数由导入线程更新、查询接口读取
+ */
+@Getter
+class UserImportJob {
+
+    enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final String jobId;
+    private final String format;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final long startNanos = System.nanoTime();
+
+    final AtomicLong processed = new AtomicLong();
+    final AtomicLong imported = new AtomicLong();
+    final AtomicLong duplicates = new AtomicLong();
+    final AtomicLong invalid = new AtomicLong();
+    final AtomicLong failed = new AtomicLong();
+
+    private volatile Status status = Status.RUNNING;
+    private volatile LocalDateTime finishedAt;
+    private volatile long elapsedNanos;
+    private volatile String message;
+
+    UserImportJob(String jobId, String format) {
+        this.jobId = jobId;
+        this.format = format;
+    }
+
+    boolean isFinished() {
+        return status != Status.RUNNING;
+    }
+
+    void finish(Status status, String message) {
+        this.elapsedNanos = System.nanoTime() - startNanos;
+        this.finishedAt = LocalDateTime.now();
+        this.message = message;
+        this.status = status;
+    }
+
+    /**
+     * 记录最近一次错误（任务仍继续）
+     */
+    void note(String message) {
+        this.message = message;
+    }
+
+    UserImportJobResponse toResponse() {
+        UserImportJobResponse response = new UserImportJobResponse();
+        response.setJobId(jobId);
+        response.setStatus(status.name());
+        response.setFormat(format);
+        response.setProcessed(processed.get());
+        response.setImported(imported.get());
+        response.setDuplicates(duplicates.get());
+        response.setInvalid(invalid.get());
+        response.setFailed(failed.get());
+        long nanos = isFinished() ? elapsedNanos : System.nanoTime() - startNanos;
+        response.setRowsPerSecond(nanos > 0 ? Math.round(processed.get() * 1e10 / nanos) / 10.0 : 0.0);
+        response.setStartedAt(startedAt.format(FORMATTER));
+        response.setFinishedAt(finishedAt != null ? finishedAt.format(FORMATTER) : null);
+        response.setMessage(message);
+        return response;
+    }
+}
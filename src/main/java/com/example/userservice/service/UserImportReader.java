@@ -0,0 +1,118 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserImportRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+
+/**
+ * 批量导入文件的流式读取器，逐行解析，不把整个文件读入内存
+ * <ul>
+ *     <li>ndjson：每行一个JSON对象，字段为 username、password、email、phone</li>
+ *     <li>csv：首行为表头，列名同上、顺序任意；字段按逗号分隔，不支持引号转义</li>
+ * </ul>
+ * 空行跳过。单行格式错误时 {@link #next()} 抛出IllegalArgumentException，可继续读取下一行；
+ * CSV表头缺少必需列时抛出IllegalStateException，无法继续
+ */
+public class UserImportReader implements Closeable {
+
+    private final BufferedReader reader;
+    private final boolean csv;
+    private final ObjectMapper objectMapper;
+
+    private int[] columns;
+    private long lineNumber;
+
+    public UserImportReader(Reader reader, String format, ObjectMapper objectMapper) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        this.csv = "csv".equalsIgnoreCase(format);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 读取下一条记录
+     *
+     * @return 记录，文件结束时返回null
+     * @throws IllegalArgumentException 当前行格式错误
+     * @throws IllegalStateException CSV表头缺少必需列
+     */
+    public UserImportRecord next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank());
+
+        if (!csv) {
+            try {
+                return objectMapper.readValue(line, UserImportRecord.class);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("第" + lineNumber + "行不是有效的JSON对象");
+            }
+        }
+        if (columns == null) {
+            columns = parseHeader(line);
+            return next();
+        }
+        String[] fields = line.split(",", -1);
+        return new UserImportRecord(field(fields, columns[0]), field(fields, columns[1]),
+                field(fields, columns[2]), field(fields, columns[3]));
+    }
+
+    /**
+     * 已读取的行数（含表头和空行）
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * 解析表头，返回 username、password、email、phone 所在列，缺失的列为-1
+     */
+    private int[] parseHeader(String line) {
+        int[] positions = {-1, -1, -1, -1};
+        String[] names = line.split(",", -1);
+        for (int i = 0; i < names.length; i++) {
+            switch (names[i].trim().toLowerCase(Locale.ROOT)) {
+                case "username":
+                    positions[0] = i;
+                    break;
+                case "password":
+                    positions[1] = i;
+                    break;
+                case "email":
+                    positions[2] = i;
+                    break;
+                case "phone":
+                    positions[3] = i;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (positions[0] < 0 || positions[1] < 0) {
+            throw new IllegalStateException("CSV表头必须包含username和password列");
+        }
+        return positions;
+    }
+
+    private static String field(String[] fields, int column) {
+        if (column < 0 || column >= fields.length) {
+            return null;
+        }
+        String value = fields[column].trim();
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,435 @@
+package com.example.userservice.service;
+
+import com.example.userservice.cache.CacheInvalidationBus;
+import com.example.userservice.client.BindRoleResponse;
+import com.example.userservice.client.PermissionServiceClient;
+import com.example.userservice.dto.ApiResponse;
+import com.example.userservice.dto.UserImportJobResponse;
+import com.example.userservice.dto.UserImportRecord;
+import com.example.userservice.entity.LookupType;
+import com.example.userservice.entity.User;
+import com.example.userservice.repository.UserBatchRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 用户批量导入服务（迁移其他产品的用户数据）
+ * 与逐条注册相比：
+ * <ul>
+ *     <li>只接受已哈希的密码，不做BCrypt计算</li>
+ *     <li>批内在内存中去重，与已有用户的去重每批每种查找键一条IN查询</li>
+ *     <li>用户ID在写入前由应用内雪花算法分配，并按物理表排序，用户和查找索引使用JDBC批处理写入</li>
+ *     <li>每批在事务提交后一次批量角色绑定RPC，不使用Seata全局事务；绑定失败时删除该批作为补偿</li>
+ *     <li>每批向其他节点发布一个用户ID范围事件，而不是每个用户一个事件</li>
+ * </ul>
+ * 上传内容先落到临时文件，再由后台任务读取，接口立即返回任务ID供查询进度
+ */
+@Service
+@Slf4j
+public class UserImportService {
+
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+    private static final Pattern PHONE_PATTERN = Pattern.compile("^1[3-9]\\d{9}$");
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserBatchRepository userBatchRepository;
+
+    @Autowired
+    private UserLookupService userLookupService;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private ActiveUserCounter activeUserCounter;
+
+    @Autowired
+    private IdWorkerLeaseManager idWorkerLeaseManager;
+
+    @Autowired
+    private UserShardRouter userShardRouter;
+
+    @Autowired
+    private UsernameSearchIndex usernameSearchIndex;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Autowired(required = false)
+    private PermissionServiceClient permissionServiceClient;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${user.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${user.import.max-concurrent-jobs:1}")
+    private int maxConcurrentJobs;
+
+    @Value("${user.import.retained-jobs:20}")
+    private int retainedJobs;
+
+    @Value("${user.import.tmp-dir:${java.io.tmpdir}}")
+    private String tmpDir;
+
+    private final Map<String, UserImportJob> jobs = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "user-import-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 上传并启动导入任务
+     *
+     * @param body 上传内容
+     * @param format ndjson 或 csv
+     * @param currentUserId 当前用户ID
+     * @return 任务进度
+     */
+    public ApiResponse<UserImportJobResponse> startImport(InputStream body, String format, Long currentUserId) {
+        if (!userService.isAdmin(currentUserId)) {
+            return ApiResponse.error(403, "无权限导入用户");
+        }
+        if (!"ndjson".equalsIgnoreCase(format) && !"csv".equalsIgnoreCase(format)) {
+            return ApiResponse.error(400, "不支持的导入格式: " + format);
+        }
+        if (executor.getActiveCount() >= maxConcurrentJobs) {
+            return ApiResponse.error(429, "已有导入任务在执行，请稍后再试");
+        }
+
+        Path file = null;
+        try {
+            Path dir = Paths.get(tmpDir);
+            Files.createDirectories(dir);
+            file = Files.createTempFile(dir, "user-import-", ".tmp");
+            Files.copy(body, file, StandardCopyOption.REPLACE_EXISTING);
+
+            UserImportJob job = new UserImportJob(UUID.randomUUID().toString(), format.toLowerCase());
+            Path uploaded = file;
+            jobs.put(job.getJobId(), job);
+            try {
+                executor.execute(() -> run(job, uploaded));
+            } catch (RejectedExecutionException e) {
+                jobs.remove(job.getJobId());
+                throw e;
+            }
+            pruneJobs();
+            log.info("用户导入任务已启动: jobId={}, format={}, bytes={}, operator={}",
+                    job.getJobId(), format, Files.size(uploaded), currentUserId);
+            return ApiResponse.success(job.toResponse());
+
+        } catch (RejectedExecutionException e) {
+            deleteQuietly(file);
+            return ApiResponse.error(429, "已有导入任务在执行，请稍后再试");
+        } catch (Exception e) {
+            deleteQuietly(file);
+            log.error("用户导入任务启动失败", e);
+            return ApiResponse.error("导入失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 查询导入任务进度
+     *
+     * @param jobId 任务ID
+     * @param currentUserId 当前用户ID
+     * @return 任务进度
+     */
+    public ApiResponse<UserImportJobResponse> getJob(String jobId, Long currentUserId) {
+        if (!userService.isAdmin(currentUserId)) {
+            return ApiResponse.error(403, "无权限查询导入任务");
+        }
+        UserImportJob job = jobs.get(jobId);
+        if (job == null) {
+            return ApiResponse.error(404, "导入任务不存在");
+        }
+        return ApiResponse.success(job.toResponse());
+    }
+
+    private void run(UserImportJob job, Path file) {
+        try (UserImportReader reader = new UserImportReader(
+                Files.newBufferedReader(file, StandardCharsets.UTF_8), job.getFormat(), objectMapper)) {
+            List<UserImportRecord> chunk = new ArrayList<>(batchSize);
+            while (true) {
+                UserImportRecord record;
+                try {
+                    record = reader.next();
+                } catch (IllegalArgumentException e) {
+                    job.processed.incrementAndGet();
+                    job.invalid.incrementAndGet();
+                    job.note(e.getMessage());
+                    continue;
+                }
+                if (record == null) {
+                    break;
+                }
+                job.processed.incrementAndGet();
+                String error = validate(record);
+                if (error != null) {
+                    job.invalid.incrementAndGet();
+                    job.note("第" + reader.getLineNumber() + "行: " + error);
+                    continue;
+                }
+                chunk.add(record);
+                if (chunk.size() >= batchSize) {
+                    importChunk(job, chunk);
+                    chunk.clear();
+                    if (job.processed.get() % 100_000 < batchSize) {
+                        log.info("用户导入进度: {}", job.toResponse());
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(job, chunk);
+            }
+            job.finish(UserImportJob.Status.COMPLETED, job.getMessage());
+            log.info("用户导入任务完成: {}", job.toResponse());
+        } catch (Exception e) {
+            job.finish(UserImportJob.Status.FAILED, e.getMessage());
+            log.error("用户导入任务失败: jobId={}", job.getJobId(), e);
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    /**
+     * 导入一批记录：批内去重、与已有用户去重，然后在一个事务中批量写入
+     */
+    private void importChunk(UserImportJob job, List<UserImportRecord> records) {
+        // 1. 批内去重（批与批之间的重复由下一步查库发现，因为前一批已提交）
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        Set<String> phones = new HashSet<>();
+        List<User> users = new ArrayList<>(records.size());
+        for (UserImportRecord record : records) {
+            String username = UserLookupService.normalize(record.getUsername());
+            String email = record.getEmail() != null ? UserLookupService.normalize(record.getEmail()) : null;
+            String phone = record.getPhone() != null ? UserLookupService.normalize(record.getPhone()) : null;
+            if (usernames.contains(username) || (email != null && emails.contains(email))
+                    || (phone != null && phones.contains(phone))) {
+                job.duplicates.incrementAndGet();
+                continue;
+            }
+            usernames.add(username);
+            if (email != null) {
+                emails.add(email);
+            }
+            if (phone != null) {
+                phones.add(phone);
+            }
+            users.add(new User(record.getUsername().trim(), record.getPassword(),
+                    record.getEmail() != null ? record.getEmail().trim() : null,
+                    record.getPhone() != null ? record.getPhone().trim() : null));
+        }
+
+        // 2. 与已有用户去重
+        Set<String> takenUsernames = userLookupService.existingValues(LookupType.USERNAME, usernames);
+        Set<String> takenEmails = userLookupService.existingValues(LookupType.EMAIL, emails);
+        Set<String> takenPhones = userLookupService.existingValues(LookupType.PHONE, phones);
+        users.removeIf(user -> {
+            boolean taken = takenUsernames.contains(UserLookupService.normalize(user.getUsername()))
+                    || (user.getEmail() != null && takenEmails.contains(UserLookupService.normalize(user.getEmail())))
+                    || (user.getPhone() != null && takenPhones.contains(UserLookupService.normalize(user.getPhone())));
+            if (taken) {
+                job.duplicates.incrementAndGet();
+            }
+            return taken;
+        });
+        if (users.isEmpty()) {
+            return;
+        }
+
+        // 3. 分配ID并按物理表排序，使每个物理表的行在批处理中连续
+        for (User user : users) {
+            user.setUserId(idWorkerLeaseManager.nextId());
+        }
+        users.sort(Comparator.comparing(user -> userShardRouter.route(user.getUserId())));
+
+        // 4. 批量写入
+        try {
+            insert(users);
+            job.imported.addAndGet(users.size());
+        } catch (DataIntegrityViolationException e) {
+            // 与并发注册或其他导入冲突，逐条重试以找出冲突的记录
+            log.warn("批量写入唯一键冲突，逐条重试: size={}", users.size());
+            for (User user : users) {
+                user.setUserId(idWorkerLeaseManager.nextId());
+                try {
+                    insert(Collections.singletonList(user));
+                    job.imported.incrementAndGet();
+                } catch (DataIntegrityViolationException conflict) {
+                    job.duplicates.incrementAndGet();
+                } catch (Exception ex) {
+                    job.failed.incrementAndGet();
+                    job.note(ex.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            job.failed.addAndGet(users.size());
+            job.note(e.getMessage());
+            log.warn("批量写入失败，跳过该批: size={}, error={}", users.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 在一个事务中写入用户和查找索引，提交后再批量绑定默认角色，不在RPC期间占用数据库事务
+     * 绑定失败时删除该批已提交的用户作为补偿；提交与补偿之间的短暂窗口内，这些用户已可登录但没有角色
+     */
+    private void insert(List<User> users) {
+        transactionTemplate.executeWithoutResult(status -> {
+            userBatchRepository.insertUsers(users);
+            userLookupService.indexAll(users);
+        });
+        try {
+            bindDefaultRoles(users);
+        } catch (RuntimeException e) {
+            compensate(users);
+            throw e;
+        }
+        activeUserCounter.added(users.size());
+        usernameSearchIndex.addAll(users);
+        // 新用户不在任何节点的缓存中，每批一个范围事件通知其他节点更新布隆过滤器和搜索索引
+        long fromUserId = users.stream().mapToLong(User::getUserId).min().getAsLong();
+        long toUserId = users.stream().mapToLong(User::getUserId).max().getAsLong();
+        cacheInvalidationBus.publishRange(fromUserId, toUserId);
+    }
+
+    /**
+     * 删除角色绑定失败的一批用户及其查找索引；补偿也失败时记录用户ID，需人工补绑角色或删除
+     */
+    private void compensate(List<User> users) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                userLookupService.unindexAll(users);
+                userBatchRepository.deleteUsers(users);
+            });
+            log.warn("批量角色绑定失败，已删除该批用户: size={}", users.size());
+        } catch (Exception e) {
+            log.error("批量角色绑定失败且删除该批用户失败，需人工处理: userIds={}",
+                    users.stream().map(User::getUserId).collect(Collectors.toList()), e);
+        }
+    }
+
+    private void bindDefaultRoles(List<User> users) {
+        boolean isSimpleProfile = Arrays.asList(environment.getActiveProfiles()).contains("simple");
+        if (isSimpleProfile || permissionServiceClient == null) {
+            return;
+        }
+        List<Long> userIds = users.stream().map(User::getUserId).collect(Collectors.toList());
+        BindRoleResponse response = permissionServiceClient.bindDefaultRoles(userIds);
+        if (response == null || !Boolean.TRUE.equals(response.getSuccess())) {
+            throw new IllegalStateException("批量角色绑定失败" + (response != null ? " - " + response.getMessage() : ""));
+        }
+    }
+
+    /**
+     * 校验记录，返回错误信息，合法时返回null
+     */
+    private String validate(UserImportRecord record) {
+        String username = record.getUsername() != null ? record.getUsername().trim() : "";
+        if (username.length() < 3 || username.length() > 50) {
+            return "用户名长度必须在3-50个字符之间";
+        }
+        if (!passwordHasher.isSupportedHash(record.getPassword())) {
+            return "密码必须是受支持的哈希值";
+        }
+        if (record.getEmail() != null
+                && (record.getEmail().length() > 100 || !EMAIL_PATTERN.matcher(record.getEmail().trim()).matches())) {
+            return "邮箱格式不正确";
+        }
+        if (record.getPhone() != null && !PHONE_PATTERN.matcher(record.getPhone().trim()).matches()) {
+            return "手机号格式不正确";
+        }
+        return null;
+    }
+
+    /**
+     * 只保留最近的若干个已结束任务
+     */
+    private void pruneJobs() {
+        int excess = jobs.size() - retainedJobs;
+        if (excess <= 0) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(UserImportJob::isFinished)
+                .sorted(Comparator.comparing(UserImportJob::getStartedAt))
+                .limit(excess)
+                .collect(Collectors.toList())
+                .forEach(job -> jobs.remove(job.getJobId()));
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除导入临时文件失败: file={}, error={}", file, e.getMessage());
+        }
+    }
+}
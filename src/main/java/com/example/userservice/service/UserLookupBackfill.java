@@ -0,0 +1,196 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.LookupType;
+import com.example.userservice.repository.UserKeyView;
+import com.example.userservice.repository.UserLookupRepository;
+import com.example.userservice.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 用户查找索引补建
+ * 为启用查找索引之前的存量用户补建 user_lookup，补建完成前查找索引不完整，{@link UserLookupService} 的查询退回用户表：
+ * <ul>
+ *     <li>补建状态记录在 background_job 表（不分片，仅在 user_db_0）的一行中，完成标记对所有节点可见</li>
+ *     <li>各节点竞争该行上的租约，只有持有租约的节点执行补建，每批续约并记录进度，节点宕机后其他节点在租约过期后从进度处接着补建</li>
+ *     <li>未完成时各节点定期检查完成标记，完成后切换到查找索引</li>
+ * </ul>
+ * 补建期间新注册、导入和修改的用户照常写入查找索引，补建跳过已存在的查找键
+ */
+@Component
+@Slf4j
+public class UserLookupBackfill {
+
+    static final String JOB_NAME = "user_lookup_backfill";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserLookupRepository userLookupRepository;
+
+    @Value("${user.lookup-index.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 本节点是否参与竞争执行补建；关闭时只等待其他节点完成
+     */
+    @Value("${user.lookup-index.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    @Value("${user.lookup-index.backfill-batch-size:1000}")
+    private int backfillBatchSize;
+
+    @Value("${user.lookup-index.backfill-lease-ttl-millis:120000}")
+    private long leaseTtlMillis;
+
+    private final String owner = ownerName();
+
+    private volatile boolean complete;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * 查找索引是否已包含所有存量用户
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        poll();
+    }
+
+    /**
+     * 定期检查完成标记，未完成且租约空闲时在后台线程中执行补建
+     */
+    @Scheduled(initialDelayString = "${user.lookup-index.backfill-check-interval-millis:30000}",
+            fixedDelayString = "${user.lookup-index.backfill-check-interval-millis:30000}")
+    public void poll() {
+        if (!enabled || complete) {
+            return;
+        }
+        try {
+            if (readComplete()) {
+                complete = true;
+                log.info("用户查找索引补建已完成，查询切换到查找索引");
+                return;
+            }
+        } catch (Exception e) {
+            log.warn("读取查找索引补建状态失败，继续查询用户表: {}", e.getMessage());
+            return;
+        }
+        if (!backfillOnStartup || !running.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                if (tryLock()) {
+                    run();
+                }
+            } catch (Exception e) {
+                log.error("用户查找索引补建失败，租约过期后重试", e);
+            } finally {
+                running.set(false);
+            }
+        }, "user-lookup-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 持有租约时从记录的进度处按用户ID分批补建，每批续约；租约被接管时停止
+     */
+    void run() {
+        long lastUserId = jdbcTemplate.queryForObject(
+                "SELECT progress FROM background_job WHERE job_name = ?", Long.class, JOB_NAME);
+        long indexed = 0L;
+        List<UserKeyView> batch;
+        log.info("用户查找索引补建开始: fromUserId={}, owner={}", lastUserId, owner);
+        do {
+            batch = userRepository.findActiveUserKeysAfter(lastUserId, PageRequest.of(0, backfillBatchSize));
+            for (UserKeyView key : batch) {
+                indexed += backfillOne(LookupType.USERNAME, key.getUsername(), key.getUserId());
+                indexed += backfillOne(LookupType.EMAIL, key.getEmail(), key.getUserId());
+                indexed += backfillOne(LookupType.PHONE, key.getPhone(), key.getUserId());
+                lastUserId = key.getUserId();
+            }
+            if (jdbcTemplate.update("UPDATE background_job SET lease_expires_at = ?, progress = ? " +
+                    "WHERE job_name = ? AND owner = ?", System.currentTimeMillis() + leaseTtlMillis, lastUserId, JOB_NAME, owner) == 0) {
+                log.warn("查找索引补建租约已被其他节点接管，停止补建: progress={}", lastUserId);
+                return;
+            }
+        } while (batch.size() == backfillBatchSize);
+
+        jdbcTemplate.update("UPDATE background_job SET completed_at = ?, lease_expires_at = 0 WHERE job_name = ? AND owner = ?",
+                System.currentTimeMillis(), JOB_NAME, owner);
+        complete = true;
+        log.info("用户查找索引补建完成: 新增{}条", indexed);
+    }
+
+    /**
+     * 以插入或按过期时间CAS更新的方式获取补建租约
+     */
+    boolean tryLock() {
+        long now = System.currentTimeMillis();
+        try {
+            jdbcTemplate.update("INSERT INTO background_job (job_name, owner, lease_expires_at, progress, completed_at) " +
+                    "VALUES (?, ?, ?, 0, 0)", JOB_NAME, owner, now + leaseTtlMillis);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return jdbcTemplate.update("UPDATE background_job SET owner = ?, lease_expires_at = ? " +
+                    "WHERE job_name = ? AND completed_at = 0 AND lease_expires_at < ?",
+                    owner, now + leaseTtlMillis, JOB_NAME, now) > 0;
+        }
+    }
+
+    private boolean readComplete() {
+        List<Long> completedAt = jdbcTemplate.queryForList(
+                "SELECT completed_at FROM background_job WHERE job_name = ?", Long.class, JOB_NAME);
+        return !completedAt.isEmpty() && completedAt.get(0) > 0;
+    }
+
+    private int backfillOne(LookupType lookupType, String value, Long userId) {
+        if (value == null) {
+            return 0;
+        }
+        String normalized = UserLookupService.normalize(value);
+        if (userLookupRepository.existsByLookupTypeAndLookupValue(lookupType, normalized)) {
+            return 0;
+        }
+        try {
+            return userLookupRepository.insert(lookupType.name(), normalized, userId);
+        } catch (DataIntegrityViolationException e) {
+            log.warn("查找键已被占用，跳过补建: type={}, userId={}", lookupType, userId);
+            return 0;
+        }
+    }
+
+    private static String ownerName() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + "/" + ProcessHandle.current().pid() + "/" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.LookupType;
+import com.example.userservice.entity.User;
+import com.example.userservice.repository.UserBatchRepository;
+import com.example.userservice.repository.UserLookupRepository;
+import com.example.userservice.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 用户查找服务
+ * 用户名/邮箱/手机号不是分片键，直接按这些字段查询会广播到所有分片。
+ * 启用全局二级索引后，先在按查找键分片的 user_lookup 表中定位 user_id，
+ * 再按 user_id 回表，两次查询都只路由到一个分片。
+ * 存量用户由 {@link UserLookupBackfill} 补建，补建完成前查询仍走用户表，写入同时维护查找索引。
+ * 布隆过滤器为各节点本地维护，其他节点的新增经缓存失效广播同步，存在短暂延迟，因此：
+ * <ul>
+ *     <li>存在性校验只在查找索引可用时由过滤器短路，漏判时由查找索引的主键冲突兜底</li>
+ *     <li>登录查找不使用过滤器，始终查询数据库</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+public class UserLookupService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserLookupRepository userLookupRepository;
+
+    @Autowired
+    private UserExistenceFilter userExistenceFilter;
+
+    @Autowired
+    private UserBatchRepository userBatchRepository;
+
+    @Value("${user.lookup-index.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    private UserLookupBackfill userLookupBackfill;
+
+    /**
+     * 检查用户名是否已被使用
+     */
+    public boolean usernameExists(String username) {
+        if (!indexReady()) {
+            return userRepository.existsByUsernameAndIsDeleted(username, 0);
+        }
+        if (!userExistenceFilter.mightContain(LookupType.USERNAME, username)) {
+            return false;
+        }
+        return userLookupRepository.existsByLookupTypeAndLookupValue(LookupType.USERNAME, normalize(username));
+    }
+
+    /**
+     * 检查邮箱是否已被使用
+     */
+    public boolean emailExists(String email) {
+        if (!indexReady()) {
+            return userRepository.existsByEmailAndIsDeleted(email, 0);
+        }
+        if (!userExistenceFilter.mightContain(LookupType.EMAIL, email)) {
+            return false;
+        }
+        return userLookupRepository.existsByLookupTypeAndLookupValue(LookupType.EMAIL, normalize(email));
+    }
+
+    /**
+     * 检查手机号是否已被使用
+     */
+    public boolean phoneExists(String phone) {
+        if (!indexReady()) {
+            return userRepository.existsByPhoneAndIsDeleted(phone, 0);
+        }
+        if (!userExistenceFilter.mightContain(LookupType.PHONE, phone)) {
+            return false;
+        }
+        return userLookupRepository.existsByLookupTypeAndLookupValue(LookupType.PHONE, normalize(phone));
+    }
+
+    /**
+     * 根据用户名查找未删除用户（登录使用）
+     *
+     * @param username 用户名
+     * @return 用户信息
+     */
+    public Optional<User> findActiveByUsername(String username) {
+        // 不经过布隆过滤器：其他节点刚注册的用户可能尚未同步到本节点的过滤器，漏判会导致登录失败
+        if (!indexReady()) {
+            return userRepository.findByUsernameAndIsDeleted(username, 0);
+        }
+        return userLookupRepository.findUserId(LookupType.USERNAME, normalize(username))
+                .flatMap(userRepository::findActiveUserById)
+                .filter(user -> user.getUsername().equalsIgnoreCase(username));
+    }
+
+    /**
+     * 为新用户写入查找索引，需与用户插入处于同一事务
+     * 主键冲突说明该用户名/邮箱/手机号已被并发注册占用
+     *
+     * @param user 已保存的用户
+     */
+    public void index(User user) {
+        userExistenceFilter.add(LookupType.USERNAME, user.getUsername());
+        userExistenceFilter.add(LookupType.EMAIL, user.getEmail());
+        userExistenceFilter.add(LookupType.PHONE, user.getPhone());
+        if (!enabled) {
+            return;
+        }
+        try {
+            insert(LookupType.USERNAME, user.getUsername(), user.getUserId());
+            insert(LookupType.EMAIL, user.getEmail(), user.getUserId());
+            insert(LookupType.PHONE, user.getPhone(), user.getUserId());
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("用户名、邮箱或手机号已被注册", e);
+        }
+    }
+
+    /**
+     * 批量查询已被占用的查找键（批量导入去重使用）
+     * 查找索引可用时，布隆过滤器判定一定不存在的值不参与查询
+     *
+     * @param lookupType 查找键类型
+     * @param normalizedValues 已规范化的查找键值
+     * @return 已被占用的值
+     */
+    public Set<String> existingValues(LookupType lookupType, Collection<String> normalizedValues) {
+        if (!indexReady()) {
+            return userBatchRepository.findExistingUserValues(lookupType, normalizedValues);
+        }
+        List<String> candidates = normalizedValues.stream()
+                .filter(value -> userExistenceFilter.mightContain(lookupType, value))
+                .collect(Collectors.toList());
+        return userBatchRepository.findExistingLookupValues(lookupType, candidates);
+    }
+
+    /**
+     * 为批量导入的用户写入查找索引，需与用户插入处于同一事务
+     * 查找键已被占用时抛出DataIntegrityViolationException，由调用方回滚整批
+     *
+     * @param users 已插入的用户
+     */
+    public void indexAll(List<User> users) {
+        List<Object[]> rows = new ArrayList<>(users.size() * 3);
+        for (User user : users) {
+            userExistenceFilter.add(LookupType.USERNAME, user.getUsername());
+            userExistenceFilter.add(LookupType.EMAIL, user.getEmail());
+            userExistenceFilter.add(LookupType.PHONE, user.getPhone());
+            addRow(rows, LookupType.USERNAME, user.getUsername(), user.getUserId());
+            addRow(rows, LookupType.EMAIL, user.getEmail(), user.getUserId());
+            addRow(rows, LookupType.PHONE, user.getPhone(), user.getUserId());
+        }
+        if (enabled) {
+            userBatchRepository.insertLookups(rows);
+        }
+    }
+
+    /**
+     * 删除一批用户的查找索引（导入补偿），布隆过滤器中的键在定期重建时回收
+     *
+     * @param users 已写入查找索引的用户
+     */
+    public void unindexAll(List<User> users) {
+        if (!enabled) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(users.size() * 3);
+        for (User user : users) {
+            addRow(rows, LookupType.USERNAME, user.getUsername(), user.getUserId());
+            addRow(rows, LookupType.EMAIL, user.getEmail(), user.getUserId());
+            addRow(rows, LookupType.PHONE, user.getPhone(), user.getUserId());
+        }
+        userBatchRepository.deleteLookups(rows);
+    }
+
+    /**
+     * 用户修改邮箱/手机号后更新查找索引，需与用户更新处于同一事务
+     *
+     * @param userId 用户ID
+     * @param lookupType 查找键类型
+     * @param oldValue 旧值
+     * @param newValue 新值
+     */
+    public void reindex(Long userId, LookupType lookupType, String oldValue, String newValue) {
+        // 旧值不从布隆过滤器中删除，在定期重建时回收
+        userExistenceFilter.add(lookupType, newValue);
+        if (!enabled) {
+            return;
+        }
+        try {
+            insert(lookupType, newValue, userId);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("该" + (lookupType == LookupType.EMAIL ? "邮箱" : "手机号") + "已被使用", e);
+        }
+        if (oldValue != null) {
+            userLookupRepository.deleteOwned(lookupType, normalize(oldValue), userId);
+        }
+    }
+
+    /**
+     * 查找索引可用于查询：已启用且存量用户已补建完成；写入不受此限制，补建期间照常写入
+     */
+    private boolean indexReady() {
+        return enabled && userLookupBackfill.isComplete();
+    }
+
+    private void insert(LookupType lookupType, String value, Long userId) {
+        if (value != null) {
+            userLookupRepository.insert(lookupType.name(), normalize(value), userId);
+        }
+    }
+
+    private static void addRow(List<Object[]> rows, LookupType lookupType, String value, Long userId) {
+        if (value != null) {
+            rows.add(new Object[]{lookupType.name(), normalize(value), userId});
+        }
+    }
+
+    /**
+     * 规范化查找键：与数据库不区分大小写的排序规则保持一致
+     */
+    static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
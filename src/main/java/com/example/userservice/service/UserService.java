@@ -1,30 +1,52 @@
 package com.example.userservice.service;
 
+import com.example.userservice.cache.CacheInvalidationBus;
+import com.example.userservice.cache.CacheInvalidationEvent;
+import com.example.userservice.cache.CachedUser;
+import com.example.userservice.cache.PermissionCache;
+import com.example.userservice.cache.UserCache;
 import com.example.userservice.client.PermissionServiceClient;
 import com.example.userservice.client.BindRoleResponse;
 import com.example.userservice.client.UserPermissionResponse;
 import com.example.userservice.dto.*;
+import com.example.userservice.entity.LookupType;
 import com.example.userservice.entity.User;
+import com.example.userservice.exception.ServiceBusyException;
 import com.example.userservice.mq.LogMessageProducer;
 import com.example.userservice.mq.SimpleLogMessageProducer;
 import com.example.userservice.repository.UserRepository;
+import com.example.userservice.util.EtagUtil;
 import com.example.userservice.util.JwtUtil;
+import com.example.userservice.util.PageCursor;
+import com.example.userservice.util.TrigramIndex;
 import io.seata.spring.annotation.GlobalTransactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 /**
  * 用户业务服务层
@@ -37,9 +59,21 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserLookupService userLookupService;
+
     @Autowired(required = false)
     private PermissionServiceClient permissionServiceClient;
 
+    @Autowired
+    private PermissionCache permissionCache;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
     @Autowired(required = false)
     private LogMessageProducer logMessageProducer;
 
@@ -49,10 +83,39 @@ public class UserService {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private ActiveUserCounter activeUserCounter;
+
     @Autowired
     private Environment environment;
 
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    /**
+     * 单页最大记录数
+     */
+    @Value("${user.page.max-size:100}")
+    private int maxPageSize;
+
+    /**
+     * 批量查询单次最多ID数
+     */
+    @Value("${user.batch-info.max-ids:200}")
+    private int maxBatchIds;
+
+    @Autowired
+    private UserShardRouter userShardRouter;
+
+    @Autowired(required = false)
+    @Qualifier("applicationTaskExecutor")
+    private Executor queryExecutor;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    private UsernameSearchIndex usernameSearchIndex;
 
     /**
      * 用户注册的统一入口
@@ -61,13 +124,13 @@ public class UserService {
     @Transactional
     public ApiResponse<String> register(UserRegisterRequest request) {
         // 1. 统一进行参数校验
-        if (userRepository.existsByUsernameAndIsDeleted(request.getUsername(), 0)) {
+        if (userLookupService.usernameExists(request.getUsername())) {
             return ApiResponse.error(400, "用户名已存在");
         }
-        if (request.getEmail() != null && userRepository.existsByEmailAndIsDeleted(request.getEmail(), 0)) {
+        if (request.getEmail() != null && userLookupService.emailExists(request.getEmail())) {
             return ApiResponse.error(400, "邮箱已被注册");
         }
-        if (request.getPhone() != null && userRepository.existsByPhoneAndIsDeleted(request.getPhone(), 0)) {
+        if (request.getPhone() != null && userLookupService.phoneExists(request.getPhone())) {
             return ApiResponse.error(400, "手机号已被注册");
         }
 
@@ -89,11 +152,14 @@ public class UserService {
         // 创建用户
         User user = new User(
                 request.getUsername(),
-                passwordEncoder.encode(request.getPassword()),
+                passwordHasher.encode(request.getPassword()),
                 request.getEmail(),
                 request.getPhone()
         );
         User savedUser = userRepository.save(user);
+        userLookupService.index(savedUser);
+        activeUserCounter.added(1);
+        usernameSearchIndex.add(savedUser.getUserId(), savedUser.getUsername());
         log.info("用户创建成功: userId={}, username={}", savedUser.getUserId(), savedUser.getUsername());
 
         // RPC调用权限服务绑定默认角色
@@ -102,6 +168,8 @@ public class UserService {
             throw new RuntimeException("RPC调用失败: 角色绑定失败" + (roleResponse != null ? " - " + roleResponse.getMessage() : ""));
         }
         log.info("角色绑定成功: userId={}, roleCode={}", savedUser.getUserId(), roleResponse.getRoleCode());
+        cacheInvalidationBus.publish(CacheInvalidationEvent.Type.USER, savedUser.getUserId());
+        cacheInvalidationBus.publish(CacheInvalidationEvent.Type.PERMISSION, savedUser.getUserId());
 
         // 异步发送注册日志到MQ
         logMessageProducer.sendUserRegisterLog(savedUser.getUserId(), savedUser.getUsername());
@@ -117,12 +185,16 @@ public class UserService {
         // 创建用户
         User user = new User(
                 request.getUsername(),
-                passwordEncoder.encode(request.getPassword()),
+                passwordHasher.encode(request.getPassword()),
                 request.getEmail(),
                 request.getPhone()
         );
         User savedUser = userRepository.save(user);
+        userLookupService.index(savedUser);
+        activeUserCounter.added(1);
+        usernameSearchIndex.add(savedUser.getUserId(), savedUser.getUsername());
         log.info("用户创建成功 (simple mode): userId={}, username={}", savedUser.getUserId(), savedUser.getUsername());
+        cacheInvalidationBus.publish(CacheInvalidationEvent.Type.USER, savedUser.getUserId());
 
         // 异步发送日志（简化版）
         if (simpleLogMessageProducer != null) {
@@ -136,28 +208,40 @@ public class UserService {
      * 用户登录
      *
      * @param request 登录请求
+     * @param clientIp 客户端IP
      * @return 登录结果
      */
-    public ApiResponse<UserLoginResponse> login(UserLoginRequest request) {
+    public ApiResponse<UserLoginResponse> login(UserLoginRequest request, String clientIp) {
         try {
-            // 1. 查找用户
-            Optional<User> userOpt = userRepository.findByUsernameAndIsDeleted(request.getUsername(), 0);
+            // 1. 登录限流，先于查库和密码校验
+            LoginThrottle.Rejection rejection = loginThrottle.tryAcquire(request.getUsername(), clientIp);
+            if (rejection != null) {
+                log.warn("登录请求被限流: username={}, clientIp={}, reason={}", request.getUsername(), clientIp, rejection);
+                return ApiResponse.error(429, "登录尝试过于频繁，请稍后再试");
+            }
+
+            // 2. 查找用户
+            Optional<User> userOpt = userLookupService.findActiveByUsername(request.getUsername());
             if (!userOpt.isPresent()) {
+                loginThrottle.onFailure(request.getUsername(), clientIp);
                 return ApiResponse.error(401, "用户名或密码错误");
             }
 
             User user = userOpt.get();
 
-            // 2. 验证密码
-            if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+            // 3. 验证密码
+            if (!passwordHasher.matches(request.getPassword(), user.getPassword())) {
+                loginThrottle.onFailure(request.getUsername(), clientIp);
                 return ApiResponse.error(401, "用户名或密码错误");
             }
+            loginThrottle.onSuccess(request.getUsername());
+            rehashIfNeeded(user, request.getPassword());
 
-            // 3. 生成JWT Token
+            // 4. 生成JWT Token
             String token = jwtUtil.generateToken(user.getUserId(), user.getUsername());
             Long expiration = System.currentTimeMillis() + 86400000; // 24小时
 
-            // 4. 构造响应
+            // 5. 构造响应
             UserLoginResponse response = new UserLoginResponse(
                     user.getUserId(),
                     user.getUsername(),
@@ -167,7 +251,7 @@ public class UserService {
                     expiration
             );
 
-            // 5. 异步发送登录日志
+            // 6. 异步发送登录日志
             boolean isSimpleProfile = Arrays.asList(environment.getActiveProfiles()).contains("simple");
             if (isSimpleProfile) {
                 if (simpleLogMessageProducer != null) {
@@ -181,6 +265,8 @@ public class UserService {
 
             return ApiResponse.success("登录成功", response);
 
+        } catch (ServiceBusyException e) {
+            throw e;
         } catch (Exception e) {
             log.error("用户登录失败", e);
             return ApiResponse.error("登录失败: " + e.getMessage());
@@ -192,54 +278,60 @@ public class UserService {
      *
      * @param page 页码
      * @param size 每页大小
+     * @param withTotal 是否返回精确总数，为false时不执行COUNT查询
+     * @param approxTotal 是否返回近似总数（定期刷新的缓存计数），优先于withTotal
      * @param currentUserId 当前用户ID
      * @return 用户列表
      */
-    public ApiResponse<PageResponse<UserInfoResponse>> getUsers(Integer page, Integer size, Long currentUserId) {
+    public ApiResponse<PageResponse<UserInfoResponse>> getUsers(Integer page, Integer size, boolean withTotal,
+                                                                boolean approxTotal, Long currentUserId) {
         try {
             boolean isSimpleProfile = Arrays.asList(environment.getActiveProfiles()).contains("simple");
 
             // 1. 获取当前用户权限
-            UserPermissionResponse permission;
-            if (isSimpleProfile || permissionServiceClient == null) {
-                 log.warn("权限服务未配置，使用默认USER权限");
-                 permission = new UserPermissionResponse(currentUserId, "USER", "普通用户", Collections.singletonList("READ_SELF"));
-            } else {
-                try {
-                    permission = permissionServiceClient.getUserPermission(currentUserId);
-                } catch (Exception e) {
-                    log.error("获取用户权限失败，将使用默认USER权限", e);
-                    permission = new UserPermissionResponse(currentUserId, "USER", "普通用户", Collections.singletonList("READ_SELF"));
-                }
-            }
+            UserPermissionResponse permission = resolvePermission(currentUserId, "READ_SELF", isSimpleProfile);
 
             // 2. 构建分页参数
-            Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "gmtCreate"));
-            Page<User> userPage;
+            Pageable pageable = PageRequest.of(page, limitPageSize(size), Sort.by(Sort.Direction.DESC, "gmtCreate"));
+            Slice<User> userPage;
 
             // 3. 根据角色权限查询不同范围的数据
             switch (permission.getRoleCode()) {
                 case "SUPER_ADMIN":
                 case "ADMIN":
-                    userPage = userRepository.findAllActiveUsers(pageable);
+                    // COUNT(*)需广播到所有分片，代价与查询本页相当，不需要精确总数时跳过
+                    userPage = withTotal && !approxTotal
+                            ? userRepository.findAllActiveUsers(pageable)
+                            : userRepository.findActiveUsersSlice(pageable);
                     break;
                 case "USER":
                 default:
-                    Optional<User> currentUser = userRepository.findActiveUserById(currentUserId);
-                    userPage = currentUser.map(user -> (Page<User>) new org.springframework.data.domain.PageImpl<>(Collections.singletonList(user), pageable, 1))
-                                          .orElseGet(() -> Page.empty(pageable));
+                    userPage = null;
                     break;
             }
 
             // 4. 转换为响应DTO
-            Page<UserInfoResponse> responsePage = userPage.map(this::convertToUserInfoResponse);
+            PageResponse<UserInfoResponse> response;
+            if (userPage == null) {
+                // 普通用户只能看到自己，经由用户缓存读取
+                Optional<CachedUser> currentUser = userCache.get(currentUserId);
+                response = new PageResponse<>(currentUser
+                        .map(user -> (Page<UserInfoResponse>) new org.springframework.data.domain.PageImpl<>(Collections.singletonList(convertToUserInfoResponse(user)), pageable, 1))
+                        .orElseGet(() -> Page.empty(pageable)));
+            } else if (userPage instanceof Page) {
+                response = new PageResponse<>(((Page<User>) userPage).map(this::convertToUserInfoResponse));
+            } else {
+                response = new PageResponse<>(userPage.map(this::convertToUserInfoResponse),
+                        approxTotal ? activeUserCounter.get() : null);
+            }
 
-            // 5. 发送查询日志
+            // 5. 发送查询日志（普通用户只查到自己；管理员的列表查询目标为空，按敏感操作发送）
             if (!isSimpleProfile && logMessageProducer != null) {
-                logMessageProducer.sendUserQueryLog(currentUserId, permission.getRoleName(), null);
+                logMessageProducer.sendUserQueryLog(currentUserId, permission.getRoleName(),
+                        userPage == null ? currentUserId : null);
             }
 
-            return ApiResponse.success(new PageResponse<>(responsePage));
+            return ApiResponse.success(response);
 
         } catch (Exception e) {
             log.error("查询用户列表失败", e);
@@ -248,28 +340,93 @@ public class UserService {
     }
 
     /**
-     * 根据ID查询用户信息
+     * 游标分页查询用户列表（根据权限返回不同数据）
+     * 使用 (gmtCreate, userId) seek谓词代替OFFSET，翻页代价与页深无关
      *
-     * @param userId 用户ID
+     * @param cursor 上一页返回的游标，首页为空
+     * @param size 每页大小
      * @param currentUserId 当前用户ID
-     * @return 用户信息
+     * @return 用户列表及下一页游标
      */
-    public ApiResponse<UserInfoResponse> getUserById(Long userId, Long currentUserId) {
+    public ApiResponse<CursorPageResponse<UserInfoResponse>> getUsersByCursor(String cursor, Integer size, Long currentUserId) {
         try {
             boolean isSimpleProfile = Arrays.asList(environment.getActiveProfiles()).contains("simple");
-            UserPermissionResponse permission;
 
-            if (isSimpleProfile || permissionServiceClient == null) {
-                 permission = new UserPermissionResponse(currentUserId, "USER", "普通用户", Collections.singletonList("READ_SELF"));
-            } else {
-                try {
-                    permission = permissionServiceClient.getUserPermission(currentUserId);
-                } catch (Exception e) {
-                     log.error("获取用户权限失败，将使用默认USER权限", e);
-                    permission = new UserPermissionResponse(currentUserId, "USER", "普通用户", Collections.singletonList("READ_SELF"));
-                }
+            // 1. 解析游标
+            PageCursor pageCursor;
+            try {
+                pageCursor = cursor == null || cursor.isEmpty() ? null : PageCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return ApiResponse.error(400, "无效的分页游标");
+            }
+
+            // 2. 获取当前用户权限
+            UserPermissionResponse permission = resolvePermission(currentUserId, "READ_SELF", isSimpleProfile);
+
+            // 3. 根据角色权限查询不同范围的数据
+            int pageSize = limitPageSize(size);
+            List<User> users;
+            List<UserInfoResponse> content = null;
+            String nextCursor = null;
+            switch (permission.getRoleCode()) {
+                case "SUPER_ADMIN":
+                case "ADMIN":
+                    // 多取一条用于判断是否还有下一页
+                    Pageable limit = PageRequest.of(0, pageSize + 1);
+                    users = pageCursor == null
+                            ? userRepository.findActiveUsersFirst(limit)
+                            : userRepository.findActiveUsersBefore(pageCursor.getGmtCreate(), pageCursor.getUserId(), limit);
+                    if (users.size() > pageSize) {
+                        users = users.subList(0, pageSize);
+                        User last = users.get(pageSize - 1);
+                        nextCursor = new PageCursor(last.getGmtCreate(), last.getUserId()).encode();
+                    }
+                    break;
+                case "USER":
+                default:
+                    // 普通用户只能看到自己，经由用户缓存读取
+                    users = Collections.emptyList();
+                    content = pageCursor == null
+                            ? userCache.get(currentUserId).map(user -> Collections.singletonList(convertToUserInfoResponse(user))).orElse(Collections.emptyList())
+                            : Collections.emptyList();
+                    break;
+            }
+
+            // 4. 转换为响应DTO
+            if (content == null) {
+                content = users.stream()
+                        .map(this::convertToUserInfoResponse)
+                        .collect(Collectors.toList());
+            }
+
+            // 5. 发送查询日志（普通用户只查到自己；管理员的列表查询目标为空，按敏感操作发送）
+            if (!isSimpleProfile && logMessageProducer != null) {
+                logMessageProducer.sendUserQueryLog(currentUserId, permission.getRoleName(),
+                        isAdminRole(permission) ? null : currentUserId);
             }
 
+            return ApiResponse.success(new CursorPageResponse<>(content, pageSize, nextCursor));
+
+        } catch (Exception e) {
+            log.error("游标查询用户列表失败", e);
+            return ApiResponse.error("查询失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 根据ID查询用户信息
+     * 条件请求的ETag与缓存中的快照一致时直接返回304，不访问数据库
+     *
+     * @param userId 用户ID
+     * @param currentUserId 当前用户ID
+     * @param ifNoneMatch If-None-Match请求头，可为null
+     * @return 用户信息；未修改时code为304，data为当前缓存的用户信息
+     */
+    public ApiResponse<UserInfoResponse> getUserById(Long userId, Long currentUserId, String ifNoneMatch) {
+        try {
+            boolean isSimpleProfile = Arrays.asList(environment.getActiveProfiles()).contains("simple");
+            UserPermissionResponse permission = resolvePermission(currentUserId, "READ_SELF", isSimpleProfile);
+
             // 2. 权限检查
             boolean canAccess = false;
             switch (permission.getRoleCode()) {
@@ -287,16 +444,30 @@ public class UserService {
                 return ApiResponse.error(403, "无权限访问该用户信息");
             }
 
-            // 3. 查询用户
-            Optional<User> userOpt = userRepository.findActiveUserById(userId);
+            // 3. 条件请求：先只看缓存，ETag一致则无需查库
+            if (ifNoneMatch != null) {
+                Optional<CachedUser> cached = userCache.getIfPresent(userId);
+                if (cached.isPresent()) {
+                    UserInfoResponse response = convertToUserInfoResponse(cached.get());
+                    if (EtagUtil.matches(ifNoneMatch, EtagUtil.strong(response))) {
+                        if (!isSimpleProfile && logMessageProducer != null) {
+                            logMessageProducer.sendUserQueryLog(currentUserId, permission.getRoleName(), userId);
+                        }
+                        return new ApiResponse<>(304, "未修改", response);
+                    }
+                }
+            }
+
+            // 4. 查询用户（经由用户缓存）
+            Optional<CachedUser> userOpt = userCache.get(userId);
             if (!userOpt.isPresent()) {
                 return ApiResponse.error(404, "用户不存在");
             }
 
-            // 4. 转换响应
+            // 5. 转换响应
             UserInfoResponse response = convertToUserInfoResponse(userOpt.get());
 
-            // 5. 发送查询日志
+            // 6. 发送查询日志
             if (!isSimpleProfile && logMessageProducer != null) {
                  logMessageProducer.sendUserQueryLog(currentUserId, permission.getRoleName(), userId);
             }
@@ -308,6 +479,147 @@ public class UserService {
         }
     }
 
+    /**
+     * 批量查询用户信息
+     * 权限只检查一次；已缓存的用户直接返回，其余按物理表分组，每个物理表一条IN查询并行执行
+     *
+     * @param userIds 用户ID列表
+     * @param currentUserId 当前用户ID
+     * @return 按请求顺序排列的用户信息（重复ID只返回一次，不存在的用户不返回）
+     */
+    public ApiResponse<List<UserInfoResponse>> getUsersByIds(List<Long> userIds, Long currentUserId) {
+        try {
+            boolean isSimpleProfile = Arrays.asList(environment.getActiveProfiles()).contains("simple");
+
+            // 1. 参数校验
+            List<Long> ids = userIds.stream().distinct().collect(Collectors.toList());
+            if (ids.size() > maxBatchIds) {
+                return ApiResponse.error(400, "单次最多查询" + maxBatchIds + "个用户");
+            }
+
+            // 2. 权限检查（整批只做一次）
+            UserPermissionResponse permission = resolvePermission(currentUserId, "READ_SELF", isSimpleProfile);
+            switch (permission.getRoleCode()) {
+                case "SUPER_ADMIN":
+                case "ADMIN":
+                    break;
+                case "USER":
+                default:
+                    if (ids.stream().anyMatch(id -> !id.equals(currentUserId))) {
+                        return ApiResponse.error(403, "无权限访问该用户信息");
+                    }
+                    break;
+            }
+
+            // 3. 先查用户缓存
+            Map<Long, UserInfoResponse> found = new HashMap<>();
+            List<Long> misses = new ArrayList<>();
+            for (Long id : ids) {
+                Optional<CachedUser> cached = userCache.getIfPresent(id);
+                if (cached.isPresent()) {
+                    found.put(id, convertToUserInfoResponse(cached.get()));
+                } else {
+                    misses.add(id);
+                }
+            }
+
+            // 4. 未命中的按物理表分组，每组一条IN查询；多组时并行
+            if (!misses.isEmpty()) {
+                Collection<List<Long>> groups = userShardRouter.group(misses).values();
+                List<CompletableFuture<List<User>>> futures = new ArrayList<>(groups.size());
+                for (List<Long> group : groups) {
+                    futures.add(groups.size() > 1 && queryExecutor != null
+                            ? CompletableFuture.supplyAsync(() -> userRepository.findActiveUsersByIds(group), queryExecutor)
+                            : CompletableFuture.completedFuture(userRepository.findActiveUsersByIds(group)));
+                }
+                for (CompletableFuture<List<User>> future : futures) {
+                    for (User user : future.join()) {
+                        found.put(user.getUserId(), convertToUserInfoResponse(user));
+                    }
+                }
+                log.debug("批量查询用户: ids={}, cacheHits={}, shards={}", ids.size(), ids.size() - misses.size(), groups.size());
+            }
+
+            // 5. 按请求顺序返回
+            List<UserInfoResponse> response = ids.stream()
+                    .map(found::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+
+            // 6. 发送查询日志，列出被查询的他人用户ID
+            if (!isSimpleProfile && logMessageProducer != null) {
+                logMessageProducer.sendUserBatchQueryLog(currentUserId, permission.getRoleName(),
+                        response.stream().map(UserInfoResponse::getUserId).collect(Collectors.toList()));
+            }
+
+            return ApiResponse.success(response);
+
+        } catch (Exception e) {
+            log.error("批量查询用户信息失败: ids={}", userIds.size(), e);
+            return ApiResponse.error("查询失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按用户名子串搜索用户（管理员）
+     * 由内存中的用户名索引匹配用户ID，只按ID读取当前页；索引未就绪时退回数据库LIKE查询
+     *
+     * @param keyword 用户名关键字，不区分大小写，至少3个字符
+     * @param page 页码
+     * @param size 每页大小
+     * @param currentUserId 当前用户ID
+     * @return 匹配的用户，按注册时间倒序
+     */
+    public ApiResponse<PageResponse<UserInfoResponse>> searchUsers(String keyword, Integer page, Integer size,
+                                                                   Long currentUserId) {
+        try {
+            if (!isAdmin(currentUserId)) {
+                return ApiResponse.error(403, "无权限搜索用户");
+            }
+            if (keyword == null || keyword.isBlank()) {
+                return ApiResponse.error(400, "搜索关键字不能为空");
+            }
+            String trimmed = keyword.trim();
+            if (trimmed.length() < TrigramIndex.MIN_KEYWORD_LENGTH) {
+                // 过短的关键字无法使用三元组索引，只能遍历全部用户名
+                return ApiResponse.error(400, "搜索关键字至少" + TrigramIndex.MIN_KEYWORD_LENGTH + "个字符");
+            }
+            Pageable pageable = PageRequest.of(page == null || page < 0 ? 0 : page, limitPageSize(size),
+                    Sort.by(Sort.Direction.DESC, "gmtCreate"));
+
+            long[] matched = usernameSearchIndex.search(trimmed);
+            if (matched == null) {
+                Page<User> users = userRepository.findByUsernameContaining(trimmed, pageable);
+                return ApiResponse.success(new PageResponse<>(users.map(this::convertToUserInfoResponse)));
+            }
+
+            int from = (int) Math.min(pageable.getOffset(), matched.length);
+            int to = Math.min(from + pageable.getPageSize(), matched.length);
+            List<Long> pageIds = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                pageIds.add(matched[i]);
+            }
+            Map<Long, User> found = new HashMap<>();
+            if (!pageIds.isEmpty()) {
+                for (User user : userRepository.findActiveUsersByIds(pageIds)) {
+                    found.put(user.getUserId(), user);
+                }
+            }
+            // 索引与数据库之间短暂不一致时（如刚被删除），该用户不出现在本页
+            List<UserInfoResponse> content = pageIds.stream()
+                    .map(found::get)
+                    .filter(Objects::nonNull)
+                    .map(this::convertToUserInfoResponse)
+                    .collect(Collectors.toList());
+            return ApiResponse.success(new PageResponse<>(
+                    new org.springframework.data.domain.PageImpl<>(content, pageable, matched.length)));
+
+        } catch (Exception e) {
+            log.error("搜索用户失败: keyword={}", keyword, e);
+            return ApiResponse.error("搜索失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 更新用户信息
      *
@@ -320,17 +632,7 @@ public class UserService {
     public ApiResponse<String> updateUser(Long userId, UserUpdateRequest request, Long currentUserId) {
         try {
             boolean isSimpleProfile = Arrays.asList(environment.getActiveProfiles()).contains("simple");
-            UserPermissionResponse permission;
-            if (isSimpleProfile || permissionServiceClient == null) {
-                 permission = new UserPermissionResponse(currentUserId, "USER", "普通用户", Collections.singletonList("UPDATE_SELF"));
-            } else {
-                 try {
-                    permission = permissionServiceClient.getUserPermission(currentUserId);
-                 } catch (Exception e) {
-                    log.error("获取用户权限失败，将使用默认USER权限", e);
-                    permission = new UserPermissionResponse(currentUserId, "USER", "普通用户", Collections.singletonList("UPDATE_SELF"));
-                 }
-            }
+            UserPermissionResponse permission = resolvePermission(currentUserId, "UPDATE_SELF", isSimpleProfile);
 
             // 1. 权限检查（与查询逻辑类似）
             boolean canUpdate = false;
@@ -361,17 +663,19 @@ public class UserService {
             // 3. 更新字段
             StringBuilder updateFields = new StringBuilder();
             if (request.getEmail() != null && !request.getEmail().equals(user.getEmail())) {
-                if (userRepository.existsByEmailAndIsDeleted(request.getEmail(), 0)) {
+                if (userLookupService.emailExists(request.getEmail())) {
                     return ApiResponse.error(400, "邮箱已被使用");
                 }
+                userLookupService.reindex(userId, LookupType.EMAIL, user.getEmail(), request.getEmail());
                 user.setEmail(request.getEmail());
                 updateFields.append("email,");
             }
 
             if (request.getPhone() != null && !request.getPhone().equals(user.getPhone())) {
-                if (userRepository.existsByPhoneAndIsDeleted(request.getPhone(), 0)) {
+                if (userLookupService.phoneExists(request.getPhone())) {
                     return ApiResponse.error(400, "手机号已被使用");
                 }
+                userLookupService.reindex(userId, LookupType.PHONE, user.getPhone(), request.getPhone());
                 user.setPhone(request.getPhone());
                 updateFields.append("phone,");
             }
@@ -379,6 +683,7 @@ public class UserService {
             // 4. 保存更新
             if (updateFields.length() > 0) {
                  userRepository.save(user);
+                 cacheInvalidationBus.publish(CacheInvalidationEvent.Type.USER, userId);
                  // 5. 发送更新日志
                 String fields = updateFields.substring(0, updateFields.length() - 1);
                 if (isSimpleProfile) {
@@ -419,13 +724,14 @@ public class UserService {
             User user = userOpt.get();
 
             // 2. 验证旧密码
-            if (!passwordEncoder.matches(request.getOldPassword(), user.getPassword())) {
+            if (!passwordHasher.matches(request.getOldPassword(), user.getPassword())) {
                 return ApiResponse.error(400, "旧密码不正确");
             }
 
             // 3. 更新密码
-            user.setPassword(passwordEncoder.encode(request.getNewPassword()));
+            user.setPassword(passwordHasher.encode(request.getNewPassword()));
             userRepository.save(user);
+            cacheInvalidationBus.publish(CacheInvalidationEvent.Type.USER, user.getUserId());
 
             // 4. 发送密码重置日志
             boolean isSimpleProfile = Arrays.asList(environment.getActiveProfiles()).contains("simple");
@@ -441,12 +747,92 @@ public class UserService {
 
             return ApiResponse.success("密码重置成功");
 
+        } catch (ServiceBusyException e) {
+            throw e;
         } catch (Exception e) {
             log.error("密码重置失败: userId={}", currentUserId, e);
             return ApiResponse.error("密码重置失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 已存储的哈希与当前哈希策略不一致时，在后台按新策略重新哈希，不影响登录响应
+     * 仅当数据库中的哈希仍为读取时的值才替换，避免覆盖并发的密码修改；
+     * 写库放到应用任务线程池执行，不占用CPU核数大小的密码哈希线程池
+     *
+     * @param user 已通过密码校验的用户
+     * @param rawPassword 明文密码
+     */
+    private void rehashIfNeeded(User user, String rawPassword) {
+        String oldHash = user.getPassword();
+        if (!passwordHasher.needsRehash(oldHash)) {
+            return;
+        }
+        Long userId = user.getUserId();
+        Executor executor = queryExecutor != null ? queryExecutor : ForkJoinPool.commonPool();
+        passwordHasher.encodeAsync(rawPassword)
+                .thenAcceptAsync(newHash -> {
+                    if (userRepository.updatePasswordIfUnchanged(userId, oldHash, newHash) > 0) {
+                        log.info("密码哈希已按新策略更新: userId={}", userId);
+                    }
+                }, executor)
+                .exceptionally(e -> {
+                    log.warn("密码重新哈希失败，下次登录重试: userId={}, error={}", userId, e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * 获取当前用户权限（经由权限缓存）
+     * 权限服务未配置或无可用缓存且RPC失败时降级为默认USER权限
+     *
+     * @param currentUserId 当前用户ID
+     * @param defaultPermission 降级时授予的权限码
+     * @param isSimpleProfile 是否simple模式
+     * @return 用户权限信息
+     */
+    private UserPermissionResponse resolvePermission(Long currentUserId, String defaultPermission, boolean isSimpleProfile) {
+        if (isSimpleProfile || permissionServiceClient == null) {
+            log.warn("权限服务未配置，使用默认USER权限");
+            return new UserPermissionResponse(currentUserId, "USER", "普通用户", Collections.singletonList(defaultPermission));
+        }
+        try {
+            return permissionCache.get(currentUserId);
+        } catch (Exception e) {
+            log.error("获取用户权限失败，将使用默认USER权限", e);
+            return new UserPermissionResponse(currentUserId, "USER", "普通用户", Collections.singletonList(defaultPermission));
+        }
+    }
+
+    /**
+     * 判断当前用户是否为管理员（ADMIN或SUPER_ADMIN），供管理接口使用
+     *
+     * @param currentUserId 当前用户ID
+     * @return 是否为管理员
+     */
+    boolean isAdmin(Long currentUserId) {
+        boolean isSimpleProfile = Arrays.asList(environment.getActiveProfiles()).contains("simple");
+        return isAdminRole(resolvePermission(currentUserId, "READ_SELF", isSimpleProfile));
+    }
+
+    private static boolean isAdminRole(UserPermissionResponse permission) {
+        String roleCode = permission.getRoleCode();
+        return "SUPER_ADMIN".equals(roleCode) || "ADMIN".equals(roleCode);
+    }
+
+    /**
+     * 将每页大小限制在 [1, maxPageSize] 范围内
+     *
+     * @param size 请求的每页大小
+     * @return 实际每页大小
+     */
+    private int limitPageSize(Integer size) {
+        if (size == null || size < 1) {
+            return 1;
+        }
+        return Math.min(size, maxPageSize);
+    }
+
     /**
      * 将User实体转换为UserInfoResponse
      *
@@ -454,6 +840,16 @@ public class UserService {
      * @return 用户信息响应
      */
     private UserInfoResponse convertToUserInfoResponse(User user) {
+        return convertToUserInfoResponse(CachedUser.of(user));
+    }
+
+    /**
+     * 将用户缓存快照转换为UserInfoResponse
+     *
+     * @param user 用户快照
+     * @return 用户信息响应
+     */
+    private UserInfoResponse convertToUserInfoResponse(CachedUser user) {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
         return new UserInfoResponse(
                 user.getUserId(),
@@ -0,0 +1,55 @@
+package com.example.userservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * users表分片路由
+ * 按与ShardingSphere HASH_MOD算法相同的规则计算user_id所在的物理表，
+ * 供批量查询按物理表分组，使每组的IN查询只路由到一个分片。
+ * 分片数须与 sharding-algorithms 中的 sharding-count 保持一致；未配置分片（simple模式）时所有ID归为一组
+ */
+@Component
+public class UserShardRouter {
+
+    private final int databaseCount;
+    private final int tableCount;
+
+    public UserShardRouter(
+            @Value("${spring.shardingsphere.rules.sharding.sharding-algorithms.database-hash-mod.props.sharding-count:1}") int databaseCount,
+            @Value("${spring.shardingsphere.rules.sharding.sharding-algorithms.table-hash-mod.props.sharding-count:1}") int tableCount) {
+        this.databaseCount = Math.max(databaseCount, 1);
+        this.tableCount = Math.max(tableCount, 1);
+    }
+
+    /**
+     * 计算用户ID所在的物理表
+     *
+     * @param userId 用户ID
+     * @return 物理表名，如 ds1.users_1
+     */
+    public String route(Long userId) {
+        long hash = Math.abs((long) userId.hashCode());
+        return "ds" + hash % databaseCount + ".users_" + hash % tableCount;
+    }
+
+    /**
+     * 按物理表分组，组内保持输入顺序
+     *
+     * @param userIds 用户ID
+     * @return 物理表名到用户ID列表的映射
+     */
+    public Map<String, List<Long>> group(Collection<Long> userIds) {
+        Map<String, List<Long>> groups = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            groups.computeIfAbsent(route(userId), key -> new ArrayList<>()).add(userId);
+        }
+        return groups;
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.repository.UserKeyView;
+import com.example.userservice.repository.UserRepository;
+import com.example.userservice.util.TrigramIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 用户名子串搜索索引
+ * 在内存中为未删除用户的用户名维护三元组倒排索引，子串搜索只在内存中匹配出用户ID，数据库只按ID读取当前页。
+ * <ul>
+ *     <li>启动后在后台按用户ID分批构建，构建完成前 {@link #search(String)} 返回null，调用方退回数据库LIKE查询</li>
+ *     <li>本节点注册、导入的用户在事务提交后加入；其他节点写入的用户经缓存失效广播按ID重新加载</li>
+ *     <li>广播丢失的变更由定期重建补齐</li>
+ * </ul>
+ * 重建期间的变更同时写入新旧两个索引，与 {@link UserExistenceFilter} 相同
+ */
+@Component
+@Slf4j
+public class UsernameSearchIndex {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${user.search-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${user.search-index.build-batch-size:1000}")
+    private int buildBatchSize;
+
+    /**
+     * 当前提供查询的索引，构建完成前为null
+     */
+    private volatile TrigramIndex current;
+
+    /**
+     * 正在重建的索引
+     */
+    private volatile TrigramIndex building;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    @PostConstruct
+    public void init() {
+        if (enabled && meterRegistry != null) {
+            Gauge.builder("user.search-index.size", this, i -> i.current == null ? 0 : i.current.size())
+                    .description("用户名搜索索引中的用户数")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 查询用户名包含关键字（不区分大小写）的用户
+     *
+     * @param keyword 关键字
+     * @return 按用户ID降序（即按注册时间倒序）排列的用户ID；索引未启用或未就绪时返回null
+     */
+    public long[] search(String keyword) {
+        TrigramIndex index = current;
+        if (!enabled || index == null) {
+            return null;
+        }
+        return index.search(keyword);
+    }
+
+    /**
+     * 加入新注册的用户，事务提交后生效
+     *
+     * @param userId 用户ID
+     * @param username 用户名
+     */
+    public void add(Long userId, String username) {
+        if (!enabled || userId == null || username == null) {
+            return;
+        }
+        afterCommit(() -> apply(index -> index.put(userId, username)));
+    }
+
+    /**
+     * 加入已提交的一批用户（批量导入）
+     *
+     * @param users 用户
+     */
+    public void addAll(List<User> users) {
+        if (!enabled) {
+            return;
+        }
+        apply(index -> {
+            for (User user : users) {
+                index.put(user.getUserId(), user.getUsername());
+            }
+        });
+    }
+
+    /**
+     * 加入其他节点批量导入的一批用户
+     *
+     * @param keys 用户查找键
+     */
+    public void addKeys(List<UserKeyView> keys) {
+        if (!enabled || keys.isEmpty()) {
+            return;
+        }
+        apply(index -> {
+            for (UserKeyView key : keys) {
+                index.put(key.getUserId(), key.getUsername());
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 按数据库中的当前状态更新用户的索引项：未删除则加入，不存在或已删除则移除
+     *
+     * @param userId 用户ID
+     * @param user 从数据库加载的未删除用户，不存在或已删除时为null
+     */
+    public void refresh(Long userId, User user) {
+        if (!enabled || userId == null || (current == null && building == null)) {
+            return;
+        }
+        if (user != null) {
+            apply(index -> index.put(userId, user.getUsername()));
+        } else {
+            apply(index -> index.remove(userId));
+        }
+    }
+
+    /**
+     * 启动后在后台构建索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::rebuild, "username-search-index-build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 定期重建，补齐未收到广播的变更
+     */
+    @Scheduled(initialDelayString = "${user.search-index.rebuild-interval-millis:3600000}",
+            fixedDelayString = "${user.search-index.rebuild-interval-millis:3600000}")
+    public void rebuild() {
+        if (!enabled || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            TrigramIndex index = new TrigramIndex();
+            // 先发布到building再开始遍历，之后的变更会同时写入新索引
+            building = index;
+
+            long lastUserId = 0L;
+            List<UserKeyView> batch;
+            do {
+                batch = userRepository.findActiveUserKeysAfter(lastUserId, PageRequest.of(0, buildBatchSize));
+                for (UserKeyView key : batch) {
+                    index.put(key.getUserId(), key.getUsername());
+                    lastUserId = key.getUserId();
+                }
+            } while (batch.size() == buildBatchSize);
+
+            current = index;
+            log.info("用户名搜索索引构建完成: users={}, 耗时{}ms", index.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("用户名搜索索引构建失败，继续使用原索引", e);
+        } finally {
+            building = null;
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * 先读building再读current，原因同 {@link UserExistenceFilter}
+     */
+    private void apply(Consumer<TrigramIndex> change) {
+        TrigramIndex next = building;
+        if (next != null) {
+            change.accept(next);
+        }
+        TrigramIndex index = current;
+        if (index != null && index != next) {
+            change.accept(index);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
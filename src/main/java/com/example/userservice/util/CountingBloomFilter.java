@@ -0,0 +1,169 @@
+package com.example.userservice.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 计数布隆过滤器
+ * 每个位置使用4位计数器（每个long容纳16个），支持删除；所有操作基于CAS，无锁线程安全。
+ * 计数器达到上限后保持饱和、不再递减，只会增加误判而不会产生漏判
+ */
+public class CountingBloomFilter {
+
+    private static final int COUNTER_BITS = 4;
+    private static final int COUNTERS_PER_WORD = Long.SIZE / COUNTER_BITS;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+
+    private final AtomicLongArray words;
+    private final long counterCount;
+    private final int hashCount;
+    private final AtomicLong elementCount = new AtomicLong();
+
+    private CountingBloomFilter(long counterCount, int hashCount) {
+        long wordCount = (counterCount + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD;
+        if (wordCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("布隆过滤器容量过大: " + counterCount);
+        }
+        this.words = new AtomicLongArray((int) wordCount);
+        this.counterCount = counterCount;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * 按预期元素数和目标误判率创建过滤器
+     *
+     * @param expectedInsertions 预期元素数
+     * @param fpp 目标误判率
+     * @return 布隆过滤器
+     */
+    public static CountingBloomFilter create(long expectedInsertions, double fpp) {
+        long n = Math.max(expectedInsertions, 1);
+        long m = Math.max((long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2))), COUNTERS_PER_WORD);
+        int k = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        return new CountingBloomFilter(m, k);
+    }
+
+    /**
+     * 添加元素
+     */
+    public void add(String value) {
+        long hash = hash(value);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            increment(Math.floorMod(h1 + i * h2, counterCount));
+        }
+        elementCount.incrementAndGet();
+    }
+
+    /**
+     * 删除元素（调用方需保证该元素确实添加过）
+     */
+    public void remove(String value) {
+        long hash = hash(value);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            decrement(Math.floorMod(h1 + i * h2, counterCount));
+        }
+        elementCount.decrementAndGet();
+    }
+
+    /**
+     * 判断元素是否可能存在
+     *
+     * @return false表示一定不存在；true表示可能存在
+     */
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            if (counter(Math.floorMod(h1 + i * h2, counterCount)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 当前元素数（近似值）
+     */
+    public long approximateElementCount() {
+        return Math.max(elementCount.get(), 0);
+    }
+
+    /**
+     * 按当前元素数估算的误判率
+     */
+    public double expectedFpp() {
+        double fillRatio = 1 - Math.exp(-(double) hashCount * approximateElementCount() / counterCount);
+        return Math.pow(fillRatio, hashCount);
+    }
+
+    /**
+     * 占用内存（字节）
+     */
+    public long sizeInBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    private long counter(long index) {
+        long word = words.get((int) (index / COUNTERS_PER_WORD));
+        return (word >>> shift(index)) & COUNTER_MASK;
+    }
+
+    private void increment(long index) {
+        int wordIndex = (int) (index / COUNTERS_PER_WORD);
+        int shift = shift(index);
+        while (true) {
+            long word = words.get(wordIndex);
+            if (((word >>> shift) & COUNTER_MASK) == COUNTER_MASK) {
+                return;
+            }
+            if (words.compareAndSet(wordIndex, word, word + (1L << shift))) {
+                return;
+            }
+        }
+    }
+
+    private void decrement(long index) {
+        int wordIndex = (int) (index / COUNTERS_PER_WORD);
+        int shift = shift(index);
+        while (true) {
+            long word = words.get(wordIndex);
+            long count = (word >>> shift) & COUNTER_MASK;
+            if (count == 0 || count == COUNTER_MASK) {
+                return;
+            }
+            if (words.compareAndSet(wordIndex, word, word - (1L << shift))) {
+                return;
+            }
+        }
+    }
+
+    private static int shift(long index) {
+        return (int) (index % COUNTERS_PER_WORD) * COUNTER_BITS;
+    }
+
+    /**
+     * 64位FNV-1a哈希
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * SplitMix64终结函数，打散哈希位
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
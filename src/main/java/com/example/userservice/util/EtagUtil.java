@@ -0,0 +1,93 @@
+package com.example.userservice.util;
+
+import com.example.userservice.dto.PageResponse;
+import com.example.userservice.dto.UserInfoResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * ETag生成与If-None-Match匹配工具
+ * <ul>
+ *     <li>单个用户使用强ETag，由userId、gmtModified及其余可见字段计算，内容相同则ETag相同</li>
+ *     <li>分页列表使用弱ETag，由分页信息和每条记录的强ETag计算</li>
+ * </ul>
+ */
+public final class EtagUtil {
+
+    private static final char FIELD_SEPARATOR = '\u0000';
+
+    private EtagUtil() {
+    }
+
+    /**
+     * 计算用户信息的强ETag
+     *
+     * @param user 用户信息
+     * @return 带引号的ETag，如 "1001-3f2a9c0d1e7b4a55"
+     */
+    public static String strong(UserInfoResponse user) {
+        String digest = digest(user.getUserId(), user.getGmtModified(), user.getUsername(),
+                user.getEmail(), user.getPhone(), user.getGmtCreate());
+        return "\"" + user.getUserId() + "-" + digest + "\"";
+    }
+
+    /**
+     * 计算分页列表的弱ETag
+     * 近似总数会随后台刷新变化，且列表不是逐字节稳定的表示，因此只提供弱校验
+     *
+     * @param page 分页响应
+     * @return 弱ETag，如 W/"p-3f2a9c0d1e7b4a55"
+     */
+    public static String weak(PageResponse<UserInfoResponse> page) {
+        Object[] parts = new Object[page.getContent().size() + 4];
+        parts[0] = page.getPage();
+        parts[1] = page.getSize();
+        parts[2] = page.getTotalElements();
+        parts[3] = page.getLast();
+        for (int i = 0; i < page.getContent().size(); i++) {
+            parts[i + 4] = strong(page.getContent().get(i));
+        }
+        return "W/\"p-" + digest(parts) + "\"";
+    }
+
+    /**
+     * 按If-None-Match的弱比较规则判断ETag是否匹配（忽略W/前缀，支持逗号分隔的多个值和*）
+     *
+     * @param ifNoneMatch If-None-Match请求头，可为null
+     * @param etag 当前ETag
+     * @return 是否匹配
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank() || etag == null) {
+            return false;
+        }
+        String opaque = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if ("*".equals(trimmed) || stripWeak(trimmed).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static String digest(Object... parts) {
+        StringBuilder source = new StringBuilder();
+        for (Object part : parts) {
+            source.append(part).append(FIELD_SEPARATOR);
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(source.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.userservice.util;
+
+import io.jsonwebtoken.Jwts;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JWT非对称密钥环
+ * 负责加载ES256/EdDSA签名密钥（按kid区分），并生成供其他服务本地验签的JWKS
+ *
+ * 密钥目录约定：
+ * <ul>
+ *     <li>{kid}.key —— PKCS#8 PEM格式私钥，仅当前签名密钥需要</li>
+ *     <li>{kid}.pub —— X.509 PEM格式公钥，已轮换下线的密钥保留公钥直到其签发的令牌全部过期</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class JwtKeyRing {
+
+    @Value("${jwt.algorithm:HS256}")
+    private String algorithm;
+
+    @Value("${jwt.keys.dir:}")
+    private String keyDir;
+
+    @Value("${jwt.keys.active-kid:}")
+    private String activeKid;
+
+    private io.jsonwebtoken.security.SignatureAlgorithm signatureAlgorithm;
+
+    private String keyFactoryAlgorithm;
+
+    private PrivateKey signingKey;
+
+    private final Map<String, PublicKey> verificationKeys = new LinkedHashMap<>();
+
+    private Map<String, Object> jwks = Collections.singletonMap("keys", Collections.emptyList());
+
+    @PostConstruct
+    public void init() throws IOException, GeneralSecurityException {
+        switch (algorithm.toUpperCase()) {
+            case "HS256":
+                log.info("JWT使用HS256对称签名");
+                return;
+            case "ES256":
+                signatureAlgorithm = Jwts.SIG.ES256;
+                keyFactoryAlgorithm = "EC";
+                break;
+            case "EDDSA":
+                signatureAlgorithm = Jwts.SIG.EdDSA;
+                keyFactoryAlgorithm = "Ed25519";
+                break;
+            default:
+                throw new IllegalStateException("不支持的JWT签名算法: " + algorithm);
+        }
+
+        if (keyDir == null || keyDir.isBlank()) {
+            generateEphemeralKey();
+        } else {
+            loadKeys(Paths.get(keyDir));
+        }
+        jwks = buildJwks();
+        log.info("JWT使用{}非对称签名: activeKid={}, verificationKids={}",
+                signatureAlgorithm.getId(), activeKid, verificationKeys.keySet());
+    }
+
+    /**
+     * 是否启用非对称签名
+     */
+    public boolean isAsymmetric() {
+        return signatureAlgorithm != null;
+    }
+
+    public io.jsonwebtoken.security.SignatureAlgorithm getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    public PrivateKey getSigningKey() {
+        return signingKey;
+    }
+
+    public String getActiveKid() {
+        return activeKid;
+    }
+
+    /**
+     * 根据kid查找验签公钥
+     *
+     * @param kid 密钥ID
+     * @return 公钥，未知kid返回null
+     */
+    public PublicKey getVerificationKey(String kid) {
+        return verificationKeys.get(kid);
+    }
+
+    /**
+     * 获取JWKS（启动时生成，内容不变）
+     */
+    public Map<String, Object> getJwks() {
+        return jwks;
+    }
+
+    /**
+     * 从密钥目录加载公私钥
+     */
+    private void loadKeys(Path dir) throws IOException, GeneralSecurityException {
+        if (activeKid == null || activeKid.isBlank()) {
+            throw new IllegalStateException("配置了jwt.keys.dir时必须指定jwt.keys.active-kid");
+        }
+        KeyFactory keyFactory = KeyFactory.getInstance(keyFactoryAlgorithm);
+
+        List<Path> publicKeyFiles = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.pub")) {
+            stream.forEach(publicKeyFiles::add);
+        }
+        Collections.sort(publicKeyFiles);
+        for (Path file : publicKeyFiles) {
+            String fileName = file.getFileName().toString();
+            String kid = fileName.substring(0, fileName.length() - ".pub".length());
+            verificationKeys.put(kid, keyFactory.generatePublic(new X509EncodedKeySpec(readPem(file))));
+        }
+
+        Path privateKeyFile = dir.resolve(activeKid + ".key");
+        if (!Files.exists(privateKeyFile) || !verificationKeys.containsKey(activeKid)) {
+            throw new IllegalStateException("当前签名密钥缺少私钥或公钥文件: kid=" + activeKid);
+        }
+        signingKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(readPem(privateKeyFile)));
+    }
+
+    /**
+     * 未配置密钥目录时生成临时密钥（仅适用于单实例开发环境）
+     */
+    private void generateEphemeralKey() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(keyFactoryAlgorithm);
+        if ("EC".equals(keyFactoryAlgorithm)) {
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+        }
+        KeyPair keyPair = generator.generateKeyPair();
+        activeKid = "ephemeral-" + System.currentTimeMillis();
+        signingKey = keyPair.getPrivate();
+        verificationKeys.put(activeKid, keyPair.getPublic());
+        log.warn("未配置jwt.keys.dir，已生成临时签名密钥，重启后已签发令牌将失效，多实例部署请配置共享密钥目录");
+    }
+
+    private static byte[] readPem(Path file) throws IOException {
+        StringBuilder base64 = new StringBuilder();
+        for (String line : Files.readAllLines(file, StandardCharsets.US_ASCII)) {
+            if (!line.startsWith("-----")) {
+                base64.append(line.trim());
+            }
+        }
+        return Base64.getDecoder().decode(base64.toString());
+    }
+
+    /**
+     * 按RFC 7517/8037生成公钥JWKS
+     */
+    private Map<String, Object> buildJwks() {
+        List<Map<String, Object>> keys = new ArrayList<>();
+        for (Map.Entry<String, PublicKey> entry : verificationKeys.entrySet()) {
+            Map<String, Object> jwk = new LinkedHashMap<>();
+            PublicKey publicKey = entry.getValue();
+            if (publicKey instanceof ECPublicKey) {
+                ECPublicKey ecKey = (ECPublicKey) publicKey;
+                jwk.put("kty", "EC");
+                jwk.put("crv", "P-256");
+                jwk.put("x", base64Url(unsigned(ecKey.getW().getAffineX(), 32)));
+                jwk.put("y", base64Url(unsigned(ecKey.getW().getAffineY(), 32)));
+            } else {
+                // Ed25519的X.509编码末尾32字节即为原始公钥
+                byte[] encoded = publicKey.getEncoded();
+                jwk.put("kty", "OKP");
+                jwk.put("crv", "Ed25519");
+                jwk.put("x", base64Url(Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length)));
+            }
+            jwk.put("kid", entry.getKey());
+            jwk.put("use", "sig");
+            jwk.put("alg", signatureAlgorithm.getId());
+            keys.add(jwk);
+        }
+        return Collections.singletonMap("keys", Collections.unmodifiableList(keys));
+    }
+
+    private static byte[] unsigned(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length == length) {
+            return bytes;
+        }
+        byte[] result = new byte[length];
+        int copy = Math.min(bytes.length, length);
+        System.arraycopy(bytes, bytes.length - copy, result, length - copy, copy);
+        return result;
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
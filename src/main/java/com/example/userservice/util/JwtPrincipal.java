@@ -0,0 +1,40 @@
+package com.example.userservice.util;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Date;
+
+/**
+ * 已验证的JWT主体信息
+ * 由JwtUtil一次解析验签后生成，供拦截器和业务层直接使用，避免重复解析token
+ */
+@Getter
+@ToString
+public class JwtPrincipal {
+
+    /**
+     * 请求属性名
+     */
+    public static final String REQUEST_ATTRIBUTE = "jwtPrincipal";
+
+    private final Long userId;
+    private final String username;
+    private final Date expiration;
+
+    public JwtPrincipal(Long userId, String username, Date expiration) {
+        this.userId = userId;
+        this.username = username;
+        this.expiration = expiration;
+    }
+
+    /**
+     * 判断令牌在给定时间点是否已过期
+     *
+     * @param nowMillis 当前时间（毫秒）
+     * @return 是否过期
+     */
+    public boolean isExpiredAt(long nowMillis) {
+        return expiration == null || expiration.getTime() <= nowMillis;
+    }
+}
@@ -2,11 +2,15 @@ package com.example.userservice.util;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.security.Key;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -16,6 +20,7 @@ import java.util.Map;
  * 负责JWT令牌的生成、解析和验证
  */
 @Component
+@Slf4j
 public class JwtUtil {
 
     @Value("${jwt.secret}")
@@ -24,6 +29,54 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    /**
+     * 非对称模式下是否继续接受切换前签发的HS256令牌（无kid），仅用于切换过渡期
+     */
+    @Value("${jwt.accept-legacy-hs256:false}")
+    private boolean acceptLegacyHs256;
+
+    /**
+     * 过渡期截止时间（ISO-8601，如 2026-10-20T00:00:00Z），之后不再接受HS256令牌；
+     * 通常设为切换时间加上令牌有效期
+     */
+    @Value("${jwt.legacy-hs256-accept-until:}")
+    private String legacyHs256AcceptUntil;
+
+    private Instant legacyAcceptUntil;
+
+    @Autowired
+    private JwtKeyRing jwtKeyRing;
+
+    /**
+     * 签名密钥，启动时由secret派生一次
+     */
+    private SecretKey signingKey;
+
+    /**
+     * 预先构建的解析器（线程安全，可复用）
+     */
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    public void init() {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        if (legacyHs256AcceptUntil != null && !legacyHs256AcceptUntil.isBlank()) {
+            this.legacyAcceptUntil = Instant.parse(legacyHs256AcceptUntil.trim());
+        }
+        if (jwtKeyRing.isAsymmetric()) {
+            if (acceptLegacyHs256 && legacyAcceptUntil == null) {
+                log.warn("已切换为非对称签名但仍无期限地接受HS256令牌，请配置 jwt.legacy-hs256-accept-until");
+            }
+            this.jwtParser = Jwts.parser()
+                    .keyLocator(new KeyIdLocator())
+                    .build();
+        } else {
+            this.jwtParser = Jwts.parser()
+                    .verifyWith(signingKey)
+                    .build();
+        }
+    }
+
     /**
      * 生成JWT令牌
      *
@@ -49,13 +102,18 @@ public class JwtUtil {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + expiration);
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
                 .setIssuedAt(now)
-                .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
-                .compact();
+                .setExpiration(expiryDate);
+
+        if (jwtKeyRing.isAsymmetric()) {
+            return builder.header().keyId(jwtKeyRing.getActiveKid()).and()
+                    .signWith(jwtKeyRing.getSigningKey(), jwtKeyRing.getSignatureAlgorithm())
+                    .compact();
+        }
+        return builder.signWith(getSigningKey(), SignatureAlgorithm.HS256).compact();
     }
 
     /**
@@ -64,8 +122,26 @@ public class JwtUtil {
      * @return 签名密钥
      */
     private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signingKey;
+    }
+
+    /**
+     * 解析并验证令牌，一次完成验签、过期检查和声明提取
+     *
+     * @param token JWT令牌
+     * @return 已验证的主体信息，令牌无效或已过期时返回null
+     */
+    public JwtPrincipal parseToken(String token) {
+        try {
+            Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+            Date expirationDate = claims.getExpiration();
+            if (expirationDate == null || expirationDate.before(new Date())) {
+                return null;
+            }
+            return new JwtPrincipal(claims.get("userId", Long.class), claims.getSubject(), expirationDate);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
     }
 
     /**
@@ -118,11 +194,7 @@ public class JwtUtil {
      */
     private Claims extractAllClaims(String token) {
         try {
-            return Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            return jwtParser.parseSignedClaims(token).getPayload();
         } catch (JwtException e) {
             throw new RuntimeException("JWT令牌解析失败", e);
         }
@@ -187,4 +259,30 @@ public class JwtUtil {
             return 0L;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 按令牌头中的kid定位验签公钥
+     * 无kid的令牌视为切换前签发的HS256令牌，只在开启过渡期且未超过截止时间时接受
+     */
+    private class KeyIdLocator extends LocatorAdapter<Key> {
+
+        @Override
+        protected Key locate(JwsHeader header) {
+            String kid = header.getKeyId();
+            if (kid == null) {
+                if (!acceptLegacyHs256) {
+                    throw new UnsupportedJwtException("令牌缺少kid");
+                }
+                if (legacyAcceptUntil != null && Instant.now().isAfter(legacyAcceptUntil)) {
+                    throw new UnsupportedJwtException("HS256令牌过渡期已结束");
+                }
+                return signingKey;
+            }
+            Key key = jwtKeyRing.getVerificationKey(kid);
+            if (key == null) {
+                throw new UnsupportedJwtException("未知的签名密钥: kid=" + kid);
+            }
+            return key;
+        }
+    }
+}
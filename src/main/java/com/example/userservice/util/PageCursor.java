@@ -0,0 +1,57 @@
+package com.example.userservice.util;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 分页游标
+ * 记录上一页最后一条记录的 (gmtCreate, userId)，编码为不透明字符串供客户端原样回传
+ */
+@Getter
+public class PageCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime gmtCreate;
+    private final Long userId;
+
+    public PageCursor(LocalDateTime gmtCreate, Long userId) {
+        this.gmtCreate = gmtCreate;
+        this.userId = userId;
+    }
+
+    /**
+     * 编码为URL安全的游标字符串
+     *
+     * @return 游标字符串
+     */
+    public String encode() {
+        String raw = gmtCreate + SEPARATOR + userId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标字符串
+     *
+     * @param cursor 游标字符串
+     * @return 分页游标
+     * @throws IllegalArgumentException 游标格式不正确
+     */
+    public static PageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            return new PageCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.valueOf(raw.substring(separator + 1)));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.userservice.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 无锁雪花ID生成器
+ * 布局：1位符号 + 41位毫秒时间戳（相对纪元）+ 10位worker-id + 12位序列号，
+ * 纪元与ShardingSphere SNOWFLAKE默认纪元相同，新旧ID处于同一数值区间。
+ *
+ * <ul>
+ *     <li>时间戳和序列号打包在一个AtomicLong中，以CAS推进，状态严格递增，同一worker-id下ID不重复</li>
+ *     <li>每毫秒的起始序列号取时间戳低8位，低流量时ID低位不会总是0，按user_id取模的分片保持均匀</li>
+ *     <li>时钟回拨或序列号用尽时沿用/借用逻辑时间戳，超前墙钟超过 maxDriftMillis 时拒绝生成</li>
+ *     <li>worker-id租约过期后拒绝生成，避免与接管该worker-id的节点冲突</li>
+ * </ul>
+ */
+public class SnowflakeIdGenerator {
+
+    /**
+     * 纪元：2016-11-01 00:00:00 UTC
+     */
+    public static final long EPOCH = 1477958400000L;
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final int WORKER_ID_BITS = 10;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long SEQUENCE_START_MASK = 0xFF;
+
+    public static final int MAX_WORKER_ID = (1 << WORKER_ID_BITS) - 1;
+
+    private final long workerId;
+    private final long maxDriftMillis;
+    private final LongSupplier clock;
+
+    /**
+     * (时间戳 - EPOCH) << 12 | 序列号，记录最后一次生成的ID
+     */
+    private final AtomicLong state;
+
+    private volatile long validUntil = Long.MAX_VALUE;
+
+    public SnowflakeIdGenerator(long workerId, long notBeforeMillis, long maxDriftMillis) {
+        this(workerId, notBeforeMillis, maxDriftMillis, System::currentTimeMillis);
+    }
+
+    public SnowflakeIdGenerator(long workerId, long notBeforeMillis, long maxDriftMillis, LongSupplier clock) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("worker-id超出范围[0, " + MAX_WORKER_ID + "]: " + workerId);
+        }
+        this.workerId = workerId;
+        this.maxDriftMillis = maxDriftMillis;
+        this.clock = clock;
+        // 视为在 notBefore 前一毫秒已用尽序列号，下一个ID的时间戳不早于 notBefore
+        long elapsed = notBeforeMillis - EPOCH - 1;
+        this.state = new AtomicLong(elapsed > 0 ? (elapsed << SEQUENCE_BITS) | SEQUENCE_MASK : 0L);
+    }
+
+    /**
+     * 生成下一个ID
+     *
+     * @return ID
+     * @throws IllegalStateException 时钟回拨超过允许范围或worker-id租约已过期
+     */
+    public long nextId() {
+        while (true) {
+            long now = clock.getAsLong();
+            if (now > validUntil) {
+                throw new IllegalStateException("worker-id租约已过期，暂停生成ID: workerId=" + workerId);
+            }
+            long elapsed = now - EPOCH;
+            long previous = state.get();
+            long previousTimestamp = previous >>> SEQUENCE_BITS;
+            long next;
+            if (elapsed > previousTimestamp) {
+                next = (elapsed << SEQUENCE_BITS) | (elapsed & SEQUENCE_START_MASK);
+            } else {
+                if ((previous & SEQUENCE_MASK) == SEQUENCE_MASK) {
+                    long borrowed = previousTimestamp + 1;
+                    next = (borrowed << SEQUENCE_BITS) | (borrowed & SEQUENCE_START_MASK);
+                } else {
+                    next = previous + 1;
+                }
+                long drift = (next >>> SEQUENCE_BITS) - elapsed;
+                if (drift > maxDriftMillis) {
+                    throw new IllegalStateException("时钟回拨超过允许范围，暂停生成ID: drift=" + drift + "ms");
+                }
+            }
+            if (state.compareAndSet(previous, next)) {
+                return ((next >>> SEQUENCE_BITS) << (SEQUENCE_BITS + WORKER_ID_BITS))
+                        | (workerId << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * 最后一次生成的ID的时间戳（毫秒），用于持久化以便重启后不回退
+     */
+    public long lastTimestamp() {
+        return (state.get() >>> SEQUENCE_BITS) + EPOCH;
+    }
+
+    /**
+     * 设置worker-id租约的有效期，超过后拒绝生成
+     *
+     * @param validUntilMillis 有效期截止时间（毫秒）
+     */
+    public void setValidUntil(long validUntilMillis) {
+        this.validUntil = validUntilMillis;
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * 从ID中解析worker-id
+     */
+    public static long workerIdOf(long id) {
+        return (id >>> SEQUENCE_BITS) & MAX_WORKER_ID;
+    }
+
+    /**
+     * 从ID中解析生成时间（毫秒）
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (SEQUENCE_BITS + WORKER_ID_BITS)) + EPOCH;
+    }
+}
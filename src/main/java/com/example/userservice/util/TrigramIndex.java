@@ -0,0 +1,220 @@
+package com.example.userservice.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 三元组（trigram）倒排索引，用于内存中的子串查询
+ * 每个值按小写切分为连续的3字符片段，每个片段对应一个按ID升序的倒排表（long数组，无装箱）。
+ * 查询时对关键字的所有片段的倒排表求交集，再用原值校验是否真正包含关键字；
+ * 关键字不足3个字符时无法使用片段，只能遍历所有值，因此不支持。
+ * 读写锁保护，查询之间互不阻塞
+ */
+public class TrigramIndex {
+
+    private static final int GRAM = 3;
+
+    /**
+     * 关键字的最小长度
+     */
+    public static final int MIN_KEYWORD_LENGTH = GRAM;
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<Long, String> values = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 添加或替换ID对应的值
+     *
+     * @param id ID
+     * @param value 值
+     */
+    public void put(long id, String value) {
+        String normalized = value.toLowerCase(Locale.ROOT);
+        lock.writeLock().lock();
+        try {
+            String previous = values.put(id, normalized);
+            if (previous != null) {
+                if (previous.equals(normalized)) {
+                    return;
+                }
+                unindex(id, previous);
+            }
+            for (long gram : grams(normalized)) {
+                postings.computeIfAbsent(gram, key -> new Postings()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除ID对应的值
+     *
+     * @param id ID
+     * @return ID是否存在
+     */
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            String previous = values.remove(id);
+            if (previous == null) {
+                return false;
+            }
+            unindex(id, previous);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询值包含关键字（不区分大小写）的ID
+     *
+     * @param keyword 关键字，至少 {@link #MIN_KEYWORD_LENGTH} 个字符
+     * @return 按ID降序排列的ID
+     * @throws IllegalArgumentException 关键字过短
+     */
+    public long[] search(String keyword) {
+        String normalized = keyword.toLowerCase(Locale.ROOT);
+        if (normalized.length() < GRAM) {
+            throw new IllegalArgumentException("关键字至少" + MIN_KEYWORD_LENGTH + "个字符");
+        }
+        lock.readLock().lock();
+        try {
+            long[] candidates = intersect(normalized);
+
+            // 逆序输出；关键字超过3个字符时，片段全部命中的候选还需校验片段是否连续出现
+            boolean verify = normalized.length() > GRAM;
+            long[] result = new long[candidates.length];
+            int count = 0;
+            for (int i = candidates.length - 1; i >= 0; i--) {
+                if (!verify || values.get(candidates[i]).contains(normalized)) {
+                    result[count++] = candidates[i];
+                }
+            }
+            return count == result.length ? result : Arrays.copyOf(result, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 是否包含ID
+     */
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return values.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 已索引的值个数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return values.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 从最短的倒排表开始，依次用二分查找过滤其余倒排表
+     */
+    private long[] intersect(String normalized) {
+        List<Postings> lists = new ArrayList<>();
+        for (long gram : grams(normalized)) {
+            Postings list = postings.get(gram);
+            if (list == null) {
+                return new long[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+        Postings smallest = lists.get(0);
+        long[] candidates = Arrays.copyOf(smallest.ids, smallest.size);
+        int count = candidates.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            Postings list = lists.get(i);
+            int kept = 0;
+            for (int j = 0; j < count; j++) {
+                if (list.indexOf(candidates[j]) >= 0) {
+                    candidates[kept++] = candidates[j];
+                }
+            }
+            count = kept;
+        }
+        return count == candidates.length ? candidates : Arrays.copyOf(candidates, count);
+    }
+
+    private void unindex(long id, String value) {
+        for (long gram : grams(value)) {
+            Postings list = postings.get(gram);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * 切分为不重复的三元组，3个UTF-16字符打包为一个long
+     */
+    private static Set<Long> grams(String value) {
+        Set<Long> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2));
+        }
+        return grams;
+    }
+
+    /**
+     * 有序的ID数组，按需扩容
+     */
+    private static final class Postings {
+
+        private long[] ids = new long[4];
+        private int size;
+
+        int indexOf(long id) {
+            return Arrays.binarySearch(ids, 0, size, id);
+        }
+
+        void add(long id) {
+            int index = indexOf(id);
+            if (index >= 0) {
+                return;
+            }
+            int insertAt = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int index = indexOf(id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
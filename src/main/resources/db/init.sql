@@ -36,6 +36,43 @@ CREATE TABLE users_1 (
     INDEX idx_gmt_create (gmt_create)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- 用户查找索引表0（用户名/邮箱/手机号 -> user_id，按 lookup_value 分片）
+CREATE TABLE user_lookup_0 (
+    lookup_type VARCHAR(16) NOT NULL,
+    lookup_value VARCHAR(100) NOT NULL,
+    user_id BIGINT NOT NULL,
+    gmt_create TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (lookup_type, lookup_value),
+    INDEX idx_user_id (user_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 用户查找索引表1（用户名/邮箱/手机号 -> user_id，按 lookup_value 分片）
+CREATE TABLE user_lookup_1 (
+    lookup_type VARCHAR(16) NOT NULL,
+    lookup_value VARCHAR(100) NOT NULL,
+    user_id BIGINT NOT NULL,
+    gmt_create TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (lookup_type, lookup_value),
+    INDEX idx_user_id (user_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 雪花ID worker-id租约表（不分片，仅在 user_db_0）
+CREATE TABLE id_worker_lease (
+    worker_id INT PRIMARY KEY,
+    owner VARCHAR(128) NOT NULL,
+    lease_expires_at BIGINT NOT NULL,
+    last_timestamp BIGINT NOT NULL DEFAULT 0
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 后台任务租约与进度表（不分片，仅在 user_db_0），如查找索引补建、未删除用户计数（progress 列保存计数结果）
+CREATE TABLE background_job (
+    job_name VARCHAR(64) PRIMARY KEY,
+    owner VARCHAR(128) NOT NULL,
+    lease_expires_at BIGINT NOT NULL,
+    progress BIGINT NOT NULL DEFAULT 0,
+    completed_at BIGINT NOT NULL DEFAULT 0
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- 数据库2: user_db_1
 USE user_db_1;
 
@@ -71,7 +108,35 @@ CREATE TABLE users_1 (
     INDEX idx_gmt_create (gmt_create)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- 用户查找索引表0（用户名/邮箱/手机号 -> user_id，按 lookup_value 分片）
+CREATE TABLE user_lookup_0 (
+    lookup_type VARCHAR(16) NOT NULL,
+    lookup_value VARCHAR(100) NOT NULL,
+    user_id BIGINT NOT NULL,
+    gmt_create TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (lookup_type, lookup_value),
+    INDEX idx_user_id (user_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 用户查找索引表1（用户名/邮箱/手机号 -> user_id，按 lookup_value 分片）
+CREATE TABLE user_lookup_1 (
+    lookup_type VARCHAR(16) NOT NULL,
+    lookup_value VARCHAR(100) NOT NULL,
+    user_id BIGINT NOT NULL,
+    gmt_create TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (lookup_type, lookup_value),
+    INDEX idx_user_id (user_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- 插入超级管理员用户（用于测试）
 -- 密码: admin123 (BCrypt加密后的值)
 INSERT INTO user_db_0.users_0 (user_id, username, password, email, gmt_create, gmt_modified, is_deleted) 
-VALUES (1, 'superadmin', '$2a$10$N.zmdr9k7uOCQb376NoUnuTJ8iAt6Z5EHsM8lE9lBOsl7iKTVEFDa', 'admin@example.com', NOW(), NOW(), 0); 
\ No newline at end of file
+VALUES (1, 'superadmin', '$2a$10$N.zmdr9k7uOCQb376NoUnuTJ8iAt6Z5EHsM8lE9lBOsl7iKTVEFDa', 'admin@example.com', NOW(), NOW(), 0); 
+
+-- 超级管理员的查找索引（按 lookup_value 哈希路由到 user_db_0.user_lookup_0）
+INSERT INTO user_db_0.user_lookup_0 (lookup_type, lookup_value, user_id, gmt_create)
+VALUES ('USERNAME', 'superadmin', 1, NOW()), ('EMAIL', 'admin@example.com', 1, NOW());
+
+-- 新建库的查找索引已包含全部用户，无需补建
+INSERT INTO user_db_0.background_job (job_name, owner, lease_expires_at, progress, completed_at)
+VALUES ('user_lookup_backfill', 'init.sql', 0, 0, 1);
@@ -6,7 +6,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.apache.rocketmq.spring.core.RocketMQTemplate;
 import com.example.userservice.client.PermissionServiceClient;
 
-@SpringBootTest(properties = {"seata.enabled=false"})
+@SpringBootTest(properties = {"seata.enabled=false", "id.worker.fallback-id=0"})
 class UserServiceApplicationTests {
 
     @MockBean
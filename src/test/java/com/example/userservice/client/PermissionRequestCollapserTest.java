@@ -0,0 +1,152 @@
+package com.example.userservice.client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PermissionRequestCollapserTest {
+
+    private StubPermissionServiceClient client;
+
+    private PermissionRequestCollapser collapser;
+
+    @BeforeEach
+    void setUp() {
+        client = new StubPermissionServiceClient();
+        collapser = new PermissionRequestCollapser();
+        ReflectionTestUtils.setField(collapser, "permissionServiceClient", client);
+        ReflectionTestUtils.setField(collapser, "enabled", true);
+        ReflectionTestUtils.setField(collapser, "windowMillis", 20L);
+        ReflectionTestUtils.setField(collapser, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(collapser, "timeoutMillis", 5000L);
+        collapser.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        collapser.destroy();
+    }
+
+    @Test
+    void concurrentLookupsAreMergedIntoFewBatchCalls() throws Exception {
+        int requests = 50;
+        ExecutorService pool = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<UserPermissionResponse>> futures = new ArrayList<>();
+            for (long userId = 1; userId <= requests; userId++) {
+                long id = userId;
+                futures.add(pool.submit(() -> collapser.load(id)));
+            }
+            for (int i = 0; i < requests; i++) {
+                assertEquals(Long.valueOf(i + 1), futures.get(i).get().getUserId());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertTrue(client.batchCalls.get() < requests, "batchCalls=" + client.batchCalls.get());
+        assertEquals(0, client.singleCalls.get());
+    }
+
+    @Test
+    void duplicateLookupsInOneWindowShareOneResult() throws Exception {
+        CompletableFuture<UserPermissionResponse> first = collapser.submit(7L);
+        CompletableFuture<UserPermissionResponse> second = collapser.submit(7L);
+
+        assertEquals(first.get(), second.get());
+        assertEquals(1, client.batchCalls.get());
+    }
+
+    @Test
+    void batchFailureIsPropagatedToEveryCaller() {
+        client.failing = true;
+
+        assertThrows(IllegalStateException.class, () -> collapser.load(1L));
+    }
+
+    @Test
+    void asyncLookupsDoNotBlockTheSubmittingPool() throws Exception {
+        // 提交方线程池只有一个线程：阻塞等待批次结果时会占住它，异步加载则立即归还
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            List<CompletableFuture<UserPermissionResponse>> futures = new ArrayList<>();
+            for (long userId = 1; userId <= 10; userId++) {
+                long id = userId;
+                futures.add(CompletableFuture.supplyAsync(() -> collapser.loadAsync(id), pool).thenCompose(f -> f));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(Long.valueOf(i + 1), futures.get(i).get(5, TimeUnit.SECONDS).getUserId());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void asyncLookupFailureIsPropagated() {
+        client.failing = true;
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> collapser.loadAsync(1L).get());
+        assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+
+    /**
+     * 本地桩，代替远端权限服务
+     */
+    private static class StubPermissionServiceClient implements PermissionServiceClient {
+
+        private final AtomicInteger batchCalls = new AtomicInteger();
+        private final AtomicInteger singleCalls = new AtomicInteger();
+        private volatile boolean failing;
+
+        @Override
+        public BindRoleResponse bindDefaultRole(Long userId) {
+            return new BindRoleResponse(true, "ok", "USER");
+        }
+
+        @Override
+        public BindRoleResponse bindDefaultRoles(List<Long> userIds) {
+            return new BindRoleResponse(true, "ok", "USER");
+        }
+
+        @Override
+        public UserPermissionResponse getUserPermission(Long userId) {
+            singleCalls.incrementAndGet();
+            return permissionOf(userId);
+        }
+
+        @Override
+        public List<UserPermissionResponse> getUserPermissions(List<Long> userIds) {
+            batchCalls.incrementAndGet();
+            if (failing) {
+                throw new IllegalStateException("permission-service unavailable");
+            }
+            return userIds.stream().map(StubPermissionServiceClient::permissionOf).collect(Collectors.toList());
+        }
+
+        @Override
+        public PermissionCheckResponse checkPermission(Long userId, String permission) {
+            return new PermissionCheckResponse(true, "ok");
+        }
+
+        private static UserPermissionResponse permissionOf(Long userId) {
+            return new UserPermissionResponse(userId, "USER", "普通用户", Collections.singletonList("USER:READ:SELF"));
+        }
+    }
+}
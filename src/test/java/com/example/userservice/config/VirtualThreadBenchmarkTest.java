@@ -0,0 +1,116 @@
+package com.example.userservice.config;
+
+import com.example.userservice.client.PermissionServiceClient;
+import com.example.userservice.repository.UserRepository;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.spring.core.RocketMQTemplate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 平台线程与虚拟线程下查库吞吐与钉住的对比
+ * 经由实际的数据源（ShardingSphere + HikariCP + MySQL Connector/J）执行按用户ID查询，
+ * 平台线程池大小与Tomcat默认最大线程数相同，连接池大小取 virtual profile 的配置。
+ * 虚拟线程运行期间以JFR记录 jdk.VirtualThreadPinned 事件并按栈顶所在的类汇总，存在钉住时失败。
+ * 需要 dev 配置中的MySQL，默认不执行：mvn -Pjava21 test -Dtest=VirtualThreadBenchmarkTest -Dbenchmark=true
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = {"seata.enabled=false"})
+@ActiveProfiles({"dev", "virtual"})
+@Slf4j
+class VirtualThreadBenchmarkTest {
+
+    private static final int REQUESTS = 20_000;
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    @MockBean
+    private RocketMQTemplate rocketMQTemplate;
+
+    @MockBean
+    private PermissionServiceClient permissionServiceClient;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void repositoryCallsUnderPlatformAndVirtualThreads() throws Exception {
+        // 预热连接池和JIT
+        run(Executors.newFixedThreadPool(TOMCAT_MAX_THREADS), REQUESTS / 10);
+
+        long platformMillis = run(Executors.newFixedThreadPool(TOMCAT_MAX_THREADS), REQUESTS);
+
+        Map<String, LongAdder> pinnedBy = new ConcurrentHashMap<>();
+        long virtualMillis;
+        try (RecordingStream stream = new RecordingStream()) {
+            stream.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            stream.onEvent("jdk.VirtualThreadPinned", event -> pinnedBy
+                    .computeIfAbsent(topApplicationFrame(event), key -> new LongAdder()).increment());
+            stream.startAsync();
+            // 以反射创建，保证在 Java 17 下也能编译
+            ExecutorService virtual = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            virtualMillis = run(virtual, REQUESTS);
+            // RecordingStream.stop() 自 JDK 20 起提供，刷出尚未消费的事件
+            RecordingStream.class.getMethod("stop").invoke(stream);
+        }
+
+        long pinned = pinnedBy.values().stream().mapToLong(LongAdder::sum).sum();
+        log.info("requests={}: platform({} threads)={}ms ({} req/s), virtual={}ms ({} req/s), pinned={}",
+                REQUESTS, TOMCAT_MAX_THREADS,
+                platformMillis, Math.round(REQUESTS * 1000.0 / platformMillis),
+                virtualMillis, Math.round(REQUESTS * 1000.0 / virtualMillis), pinned);
+        pinnedBy.forEach((frame, count) -> log.info("pinned at {}: {}", frame, count.sum()));
+        assertEquals(0, pinned, "虚拟线程在查库路径上被钉住: " + pinnedBy.keySet());
+    }
+
+    private long run(ExecutorService executor, int requests) throws Exception {
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                long userId = i + 1L;
+                futures.add(executor.submit(() -> userRepository.findActiveUserById(userId)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * 钉住点：栈中第一个非JDK的帧
+     */
+    private static String topApplicationFrame(jdk.jfr.consumer.RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "unknown";
+        }
+        return event.getStackTrace().getFrames().stream()
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName())
+                .filter(name -> !name.startsWith("java.") && !name.startsWith("jdk.") && !name.startsWith("sun."))
+                .findFirst()
+                .orElse("jdk");
+    }
+}
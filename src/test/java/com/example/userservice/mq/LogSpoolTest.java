@@ -0,0 +1,84 @@
+package com.example.userservice.mq;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogSpoolTest {
+
+    private static final int SEGMENT_BYTES = 256;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordsAreReplayedInOrderAcrossSegmentsAndRestarts() throws IOException {
+        LogSpool spool = open();
+        for (int i = 0; i < 50; i++) {
+            assertTrue(spool.append(bytes("msg-" + i)));
+        }
+        List<byte[]> first = spool.peek(20);
+        assertEquals(20, first.size());
+        spool.commit();
+        spool.close();
+
+        LogSpool reopened = open();
+        assertTrue(reopened.append(bytes("after-restart")));
+        List<String> replayed = drain(reopened);
+
+        assertEquals(31, replayed.size());
+        assertEquals("msg-20", replayed.get(0));
+        assertEquals("msg-49", replayed.get(29));
+        assertEquals("after-restart", replayed.get(30));
+        assertFalse(reopened.hasBacklog());
+        assertEquals(0, reopened.backlogBytes());
+    }
+
+    @Test
+    void uncommittedRecordsAreReplayedAgainAfterRestart() throws IOException {
+        LogSpool spool = open();
+        spool.append(bytes("a"));
+        spool.append(bytes("b"));
+        assertEquals(2, spool.peek(10).size());
+        spool.close();
+
+        assertEquals(List.of("a", "b"), drain(open()));
+    }
+
+    @Test
+    void appendIsRejectedBeyondCapacity() throws IOException {
+        LogSpool spool = new LogSpool(dir, SEGMENT_BYTES, 64, LogSpool.FsyncPolicy.NEVER, 0);
+        assertTrue(spool.append(new byte[40]));
+        assertFalse(spool.append(new byte[40]));
+        assertFalse(spool.append(new byte[SEGMENT_BYTES]));
+    }
+
+    private LogSpool open() throws IOException {
+        return new LogSpool(dir, SEGMENT_BYTES, 1 << 20, LogSpool.FsyncPolicy.ALWAYS, 0);
+    }
+
+    private static List<String> drain(LogSpool spool) throws IOException {
+        List<String> records = new ArrayList<>();
+        List<byte[]> batch;
+        while (!(batch = spool.peek(7)).isEmpty()) {
+            for (byte[] record : batch) {
+                records.add(new String(record, StandardCharsets.UTF_8));
+            }
+            spool.commit();
+        }
+        return records;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
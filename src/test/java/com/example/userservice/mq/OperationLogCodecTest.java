@@ -0,0 +1,61 @@
+package com.example.userservice.mq;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OperationLogCodecTest {
+
+    @Test
+    void roundTripRestoresFieldsAndDescription() {
+        OperationLogMessage message = new OperationLogMessage();
+        message.setUserId(1234567890123456789L);
+        message.setUsername("张三");
+        message.setOperation(OperationType.USER_UPDATE.name());
+        message.setDetail("email,phone");
+        message.setIpAddress("127.0.0.1");
+        message.setEpochMillis(1760000000000L);
+
+        OperationLogMessage decoded = OperationLogCodec.decode(OperationLogCodec.encode(message));
+
+        assertEquals(message.getUserId(), decoded.getUserId());
+        assertEquals("张三", decoded.getUsername());
+        assertEquals("USER_UPDATE", decoded.getOperation());
+        assertEquals("email,phone", decoded.getDetail());
+        assertEquals("127.0.0.1", decoded.getIpAddress());
+        assertEquals(1760000000000L, decoded.getEpochMillis());
+        assertEquals("用户信息更新: email,phone", decoded.getDescription());
+        assertNull(decoded.getTargetUserId());
+    }
+
+    @Test
+    void queryLogCarriesTargetUserIdAndUnknownOperationsKeepTheirName() {
+        OperationLogMessage query = new OperationLogMessage();
+        query.setOperation(OperationType.USER_QUERY.name());
+        query.setUserId(1L);
+        query.setTargetUserId(42L);
+        query.setEpochMillis(1L);
+        assertEquals("查询用户信息: 42", OperationLogCodec.decode(OperationLogCodec.encode(query)).getDescription());
+
+        OperationLogMessage custom = new OperationLogMessage();
+        custom.setOperation("USER_EXPORT");
+        custom.setEpochMillis(1L);
+        assertEquals("USER_EXPORT", OperationLogCodec.decode(OperationLogCodec.encode(custom)).getOperation());
+    }
+
+    @Test
+    void rejectsUnsupportedVersionAndTruncatedInput() {
+        OperationLogMessage message = new OperationLogMessage();
+        message.setOperation(OperationType.USER_LOGIN.name());
+        message.setUsername("testuser");
+        message.setEpochMillis(1L);
+        byte[] bytes = OperationLogCodec.encode(message);
+
+        byte[] truncated = java.util.Arrays.copyOf(bytes, bytes.length - 2);
+        assertThrows(IllegalArgumentException.class, () -> OperationLogCodec.decode(truncated));
+        bytes[0] = 9;
+        assertThrows(IllegalArgumentException.class, () -> OperationLogCodec.decode(bytes));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.userservice.mq;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryLogAggregatorTest {
+
+    @Test
+    void eventsAreFoldedPerOperatorAndTarget() {
+        QueryLogAggregator aggregator = new QueryLogAggregator(100);
+        aggregator.record(1L, "alice", 1L, 1000L);
+        aggregator.record(1L, "alice", 1L, 2000L);
+        aggregator.record(1L, "alice", null, 1500L);
+
+        List<OperationLogMessage> summaries = aggregator.drain();
+
+        assertEquals(2, summaries.size());
+        OperationLogMessage self = summaries.stream().filter(m -> m.getTargetUserId() != null).findFirst().orElseThrow();
+        assertEquals(OperationType.USER_QUERY_SUMMARY.name(), self.getOperation());
+        assertEquals(2, self.getCount());
+        assertEquals(1000L, self.getWindowStartMillis());
+        assertEquals(2000L, self.getEpochMillis());
+        assertTrue(aggregator.drain().isEmpty());
+    }
+
+    @Test
+    void keyLimitIsEnforced() {
+        QueryLogAggregator aggregator = new QueryLogAggregator(1);
+        assertTrue(aggregator.record(1L, "alice", null, 1L));
+        assertFalse(aggregator.record(2L, "bob", null, 1L));
+        assertTrue(aggregator.record(1L, "alice", null, 2L));
+    }
+
+    @Test
+    void noEventIsLostWhileDrainingConcurrently() throws Exception {
+        QueryLogAggregator aggregator = new QueryLogAggregator(100);
+        int threads = 4;
+        int perThread = 50_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            long operator = t % 2;
+            pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    aggregator.record(operator, "user", null, i);
+                }
+            });
+        }
+        pool.shutdown();
+
+        long total = 0;
+        while (!pool.awaitTermination(1, TimeUnit.MILLISECONDS)) {
+            total += sum(aggregator.drain());
+        }
+        total += sum(aggregator.drain());
+
+        assertEquals((long) threads * perThread, total);
+    }
+
+    private static long sum(List<OperationLogMessage> summaries) {
+        return summaries.stream().mapToLong(OperationLogMessage::getCount).sum();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.userservice.service;
+
+import com.example.userservice.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ActiveUserCounterTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:active-count;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE background_job (job_name VARCHAR(64) PRIMARY KEY, owner VARCHAR(128) NOT NULL, " +
+                "lease_expires_at BIGINT NOT NULL, progress BIGINT NOT NULL DEFAULT 0, completed_at BIGINT NOT NULL DEFAULT 0)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS background_job");
+    }
+
+    @Test
+    void onlyTheLeaseHolderCountsAndOthersReadItsResult() {
+        UserRepository leaderRepository = mock(UserRepository.class);
+        when(leaderRepository.countActiveUsers()).thenReturn(42L);
+        UserRepository followerRepository = mock(UserRepository.class);
+        ActiveUserCounter leader = node(leaderRepository, 60000L);
+        ActiveUserCounter follower = node(followerRepository, 60000L);
+
+        leader.refresh();
+        follower.refresh();
+        leader.refresh();
+
+        assertEquals(42L, leader.get());
+        assertEquals(42L, follower.get());
+        verify(leaderRepository, times(2)).countActiveUsers();
+        verify(followerRepository, never()).countActiveUsers();
+    }
+
+    @Test
+    void expiredLeaseIsTakenOver() {
+        ActiveUserCounter first = node(mock(UserRepository.class), 60000L);
+        ActiveUserCounter second = node(mock(UserRepository.class), 60000L);
+        long now = System.currentTimeMillis();
+
+        assertTrue(first.holdLease(now));
+        assertFalse(second.holdLease(now));
+        assertTrue(second.holdLease(now + 180001L));
+        assertFalse(first.holdLease(now + 180001L));
+    }
+
+    @Test
+    void countsLocallyWithoutTheJobTable() {
+        jdbcTemplate.execute("DROP TABLE background_job");
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.countActiveUsers()).thenReturn(7L);
+        ActiveUserCounter counter = node(userRepository, 60000L);
+
+        counter.added(1);
+        assertEquals(7L, counter.get());
+    }
+
+    private ActiveUserCounter node(UserRepository userRepository, long refreshIntervalMillis) {
+        ActiveUserCounter counter = new ActiveUserCounter();
+        ReflectionTestUtils.setField(counter, "userRepository", userRepository);
+        ReflectionTestUtils.setField(counter, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(counter, "refreshIntervalMillis", refreshIntervalMillis);
+        return counter;
+    }
+}
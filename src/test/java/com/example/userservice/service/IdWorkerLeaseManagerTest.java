@@ -0,0 +1,67 @@
+package com.example.userservice.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdWorkerLeaseManagerTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:lease;DB_CLOSE_DELAY=-1", "sa", ""));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS id_worker_lease");
+    }
+
+    @Test
+    void startupFailsWithoutLeaseTableOrExplicitFallback() {
+        IdWorkerLeaseManager manager = manager(-1);
+
+        assertThrows(IllegalStateException.class, manager::init);
+    }
+
+    @Test
+    void explicitFallbackIsUsedUntilRenewAcquiresALease() {
+        IdWorkerLeaseManager manager = manager(7);
+        manager.init();
+        long before = manager.nextId();
+        assertEquals(7, workerIdOf(before));
+
+        createLeaseTable();
+        manager.renew();
+
+        assertEquals(1, (int) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM id_worker_lease", Integer.class));
+        assertTrue(manager.nextId() > before);
+    }
+
+    private IdWorkerLeaseManager manager(int fallbackWorkerId) {
+        IdWorkerLeaseManager manager = new IdWorkerLeaseManager();
+        ReflectionTestUtils.setField(manager, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(manager, "leaseEnabled", true);
+        ReflectionTestUtils.setField(manager, "ttlMillis", 60000L);
+        ReflectionTestUtils.setField(manager, "fallbackWorkerId", fallbackWorkerId);
+        ReflectionTestUtils.setField(manager, "maxClockDriftMillis", 1000L);
+        return manager;
+    }
+
+    private void createLeaseTable() {
+        jdbcTemplate.execute("CREATE TABLE id_worker_lease (worker_id INT PRIMARY KEY, owner VARCHAR(128) NOT NULL, " +
+                "lease_expires_at BIGINT NOT NULL, last_timestamp BIGINT NOT NULL DEFAULT 0)");
+    }
+
+    private static long workerIdOf(long id) {
+        return (id >> 12) & 0x3FF;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.userservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LoginThrottleTest {
+
+    /**
+     * hashCode相同的两个用户名
+     */
+    private static final String VICTIM = "aan";
+    private static final String COLLIDING = "ac0";
+
+    private static final String IP = "203.0.113.7";
+
+    private LoginThrottle throttle;
+
+    private long nanos = 1L;
+
+    @BeforeEach
+    void setUp() {
+        throttle = new LoginThrottle();
+        ReflectionTestUtils.setField(throttle, "enabled", true);
+        ReflectionTestUtils.setField(throttle, "maximumKeys", 1000L);
+        ReflectionTestUtils.setField(throttle, "usernameCapacity", 100);
+        ReflectionTestUtils.setField(throttle, "usernameRefillPerMinute", 100);
+        ReflectionTestUtils.setField(throttle, "ipCapacity", 100);
+        ReflectionTestUtils.setField(throttle, "ipRefillPerMinute", 100);
+        ReflectionTestUtils.setField(throttle, "backoffAfterFailures", 3);
+        ReflectionTestUtils.setField(throttle, "backoffBaseMillis", 60000L);
+        ReflectionTestUtils.setField(throttle, "backoffMaxMillis", 300000L);
+        ReflectionTestUtils.setField(throttle, "failureDecaySeconds", 60L);
+        ReflectionTestUtils.setField(throttle, "nanoClock", (LongSupplier) () -> nanos);
+        throttle.init();
+    }
+
+    @Test
+    void collidingUsernamesDoNotShareBackoff() {
+        assertEquals(VICTIM.hashCode(), COLLIDING.hashCode());
+        for (int i = 0; i < 3; i++) {
+            throttle.onFailure(COLLIDING, null);
+        }
+
+        assertEquals(LoginThrottle.Rejection.BACKOFF, throttle.tryAcquire(COLLIDING, null));
+        assertNull(throttle.tryAcquire(VICTIM, null));
+    }
+
+    @Test
+    void successOnCollidingUsernameKeepsOtherFailures() {
+        for (int i = 0; i < 3; i++) {
+            throttle.onFailure(VICTIM, null);
+        }
+        throttle.onSuccess(COLLIDING);
+
+        assertEquals(LoginThrottle.Rejection.BACKOFF, throttle.tryAcquire(VICTIM, null));
+    }
+
+    @Test
+    void rapidFailuresFromOneIpStartBackoff() {
+        for (int i = 0; i < 3; i++) {
+            throttle.onFailure("user" + i, IP);
+        }
+
+        assertEquals(LoginThrottle.Rejection.BACKOFF, throttle.tryAcquire("someone", IP));
+    }
+
+    @Test
+    void occasionalFailuresFromSharedIpDecayInsteadOfAccumulating() {
+        // 共用出口IP上每90秒有人输错一次密码（慢于遗忘速度），其间不断有其他尝试
+        for (int i = 0; i < 100; i++) {
+            assertNull(throttle.tryAcquire("user" + i, IP));
+            throttle.onFailure("user" + i, IP);
+            advanceSeconds(90);
+        }
+
+        assertNull(throttle.tryAcquire("someone", IP));
+    }
+
+    @Test
+    void failuresAreForgottenOverTimeEvenWithoutSuccess() {
+        throttle.onFailure(VICTIM, null);
+        throttle.onFailure(VICTIM, null);
+        advanceSeconds(120);
+        throttle.onFailure(VICTIM, null);
+
+        assertNull(throttle.tryAcquire(VICTIM, null));
+    }
+
+    @Test
+    void usernameIsMatchedCaseInsensitively() {
+        for (int i = 0; i < 3; i++) {
+            throttle.onFailure(VICTIM, null);
+        }
+
+        assertEquals(LoginThrottle.Rejection.BACKOFF, throttle.tryAcquire(" AAN ", null));
+    }
+
+    private void advanceSeconds(long seconds) {
+        nanos += TimeUnit.SECONDS.toNanos(seconds);
+    }
+}
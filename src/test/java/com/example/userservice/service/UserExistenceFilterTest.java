@@ -0,0 +1,50 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.LookupType;
+import com.example.userservice.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserExistenceFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private UserExistenceFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findActiveUserKeysAfter(any(), any())).thenReturn(Collections.emptyList());
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new UserExistenceFilter();
+        ReflectionTestUtils.setField(filter, "userRepository", userRepository);
+        ReflectionTestUtils.setField(filter, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "expectedInsertions", 1000L);
+        ReflectionTestUtils.setField(filter, "fpp", 0.01);
+        ReflectionTestUtils.setField(filter, "buildBatchSize", 100);
+        filter.init();
+        filter.rebuild();
+    }
+
+    @Test
+    void repeatedAddsAreCountedOnce() {
+        filter.add(LookupType.USERNAME, "alice");
+        filter.add(LookupType.USERNAME, "Alice");
+
+        assertTrue(filter.mightContain(LookupType.USERNAME, "ALICE"));
+        assertFalse(filter.mightContain(LookupType.USERNAME, "bob"));
+        assertEquals(1.0, meterRegistry.get("user.bloom-filter.elements").tag("type", "username").gauge().value());
+    }
+}
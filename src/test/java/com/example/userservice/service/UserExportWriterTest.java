@@ -0,0 +1,58 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.User;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserExportWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void writesOneJsonObjectPerLineWithoutPassword() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        UserExportWriter writer = new UserExportWriter(out, "ndjson", objectMapper);
+        writer.write(user(1L, "alice", "a@example.com"));
+        writer.write(user(2L, "bob", null));
+        writer.flush();
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        JsonNode alice = objectMapper.readTree(lines[0]);
+        assertEquals(1L, alice.get("userId").asLong());
+        assertEquals("a@example.com", alice.get("email").asText());
+        assertFalse(alice.has("password"));
+        assertTrue(objectMapper.readTree(lines[1]).get("email").isNull());
+        assertEquals(2, writer.rows());
+    }
+
+    @Test
+    void writesCsvWithHeaderAndQuotesSpecialCharacters() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        UserExportWriter writer = new UserExportWriter(out, "csv", objectMapper);
+        writer.write(user(1L, "a,\"b\"", null));
+        writer.flush();
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("userId,username,email,phone,gmtCreate,gmtModified", lines[0]);
+        assertEquals("1,\"a,\"\"b\"\"\",,,2024-01-02T03:04:05,2024-01-02T03:04:05", lines[1]);
+    }
+
+    private static User user(Long userId, String username, String email) {
+        User user = new User(username, "{bcrypt}secret", email, null);
+        user.setUserId(userId);
+        user.setGmtCreate(LocalDateTime.of(2024, 1, 2, 3, 4, 5));
+        user.setGmtModified(LocalDateTime.of(2024, 1, 2, 3, 4, 5));
+        return user;
+    }
+}
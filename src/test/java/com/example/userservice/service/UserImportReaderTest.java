@@ -0,0 +1,64 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserImportRecord;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserImportReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Test
+    void readsNdjsonAndSkipsBlankLines() throws IOException {
+        String content = "{\"username\":\"alice\",\"password\":\"{bcrypt}x\",\"email\":\"a@example.com\"}\n"
+                + "\n"
+                + "not json\n"
+                + "{\"username\":\"bob\",\"password\":\"{bcrypt}y\",\"source\":\"legacy\"}\n";
+        try (UserImportReader reader = new UserImportReader(new StringReader(content), "ndjson", objectMapper)) {
+            UserImportRecord alice = reader.next();
+            assertEquals("alice", alice.getUsername());
+            assertEquals("a@example.com", alice.getEmail());
+
+            assertThrows(IllegalArgumentException.class, reader::next);
+
+            UserImportRecord bob = reader.next();
+            assertEquals("bob", bob.getUsername());
+            assertNull(bob.getPhone());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void readsCsvWithColumnsInAnyOrder() throws IOException {
+        String content = "phone,username,password\n"
+                + "13800000000,alice,$2a$10$abc\n"
+                + ",bob,$2a$10$def\n";
+        try (UserImportReader reader = new UserImportReader(new StringReader(content), "csv", objectMapper)) {
+            UserImportRecord alice = reader.next();
+            assertEquals("alice", alice.getUsername());
+            assertEquals("$2a$10$abc", alice.getPassword());
+            assertEquals("13800000000", alice.getPhone());
+            assertNull(alice.getEmail());
+
+            UserImportRecord bob = reader.next();
+            assertNull(bob.getPhone());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void csvWithoutRequiredColumnsIsRejected() throws IOException {
+        try (UserImportReader reader = new UserImportReader(new StringReader("username,email\nalice,a@b.c\n"), "csv", objectMapper)) {
+            assertThrows(IllegalStateException.class, reader::next);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.LookupType;
+import com.example.userservice.repository.UserKeyView;
+import com.example.userservice.repository.UserLookupRepository;
+import com.example.userservice.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserLookupBackfillTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private UserRepository userRepository;
+    private UserLookupRepository userLookupRepository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:backfill;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE background_job (job_name VARCHAR(64) PRIMARY KEY, owner VARCHAR(128) NOT NULL, " +
+                "lease_expires_at BIGINT NOT NULL, progress BIGINT NOT NULL DEFAULT 0, completed_at BIGINT NOT NULL DEFAULT 0)");
+        userRepository = mock(UserRepository.class);
+        userLookupRepository = mock(UserLookupRepository.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE background_job");
+    }
+
+    @Test
+    void onlyOneNodeHoldsTheLease() {
+        UserLookupBackfill first = node();
+        UserLookupBackfill second = node();
+
+        assertTrue(first.tryLock());
+        assertFalse(second.tryLock());
+    }
+
+    @Test
+    void expiredLeaseIsTakenOver() {
+        UserLookupBackfill first = node();
+        ReflectionTestUtils.setField(first, "leaseTtlMillis", -1L);
+        UserLookupBackfill second = node();
+
+        assertTrue(first.tryLock());
+        assertTrue(second.tryLock());
+    }
+
+    @Test
+    void backfillIndexesMissingKeysResumesFromProgressAndMarksComplete() {
+        UserLookupBackfill backfill = node();
+        assertTrue(backfill.tryLock());
+        jdbcTemplate.update("UPDATE background_job SET progress = 5");
+        UserKeyView carol = key(6L, "Carol", "carol@example.com");
+        UserKeyView dave = key(9L, "dave", null);
+        when(userRepository.findActiveUserKeysAfter(eq(5L), any())).thenReturn(Arrays.asList(carol, dave));
+        when(userRepository.findActiveUserKeysAfter(eq(9L), any())).thenReturn(Collections.emptyList());
+        when(userLookupRepository.existsByLookupTypeAndLookupValue(LookupType.USERNAME, "dave")).thenReturn(true);
+
+        backfill.run();
+
+        verify(userLookupRepository).insert("USERNAME", "carol", 6L);
+        verify(userLookupRepository).insert("EMAIL", "carol@example.com", 6L);
+        verify(userLookupRepository, never()).insert("USERNAME", "dave", 9L);
+        assertTrue(backfill.isComplete());
+        assertEquals(9L, jdbcTemplate.queryForObject("SELECT progress FROM background_job", Long.class));
+
+        UserLookupBackfill other = node();
+        other.poll();
+        assertTrue(other.isComplete());
+        assertFalse(other.tryLock());
+    }
+
+    private UserLookupBackfill node() {
+        UserLookupBackfill backfill = new UserLookupBackfill();
+        ReflectionTestUtils.setField(backfill, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(backfill, "userRepository", userRepository);
+        ReflectionTestUtils.setField(backfill, "userLookupRepository", userLookupRepository);
+        ReflectionTestUtils.setField(backfill, "enabled", true);
+        ReflectionTestUtils.setField(backfill, "backfillOnStartup", false);
+        ReflectionTestUtils.setField(backfill, "backfillBatchSize", 2);
+        ReflectionTestUtils.setField(backfill, "leaseTtlMillis", 60000L);
+        return backfill;
+    }
+
+    private static UserKeyView key(Long userId, String username, String email) {
+        UserKeyView key = mock(UserKeyView.class);
+        when(key.getUserId()).thenReturn(userId);
+        when(key.getUsername()).thenReturn(username);
+        when(key.getEmail()).thenReturn(email);
+        return key;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.LookupType;
+import com.example.userservice.entity.User;
+import com.example.userservice.repository.UserBatchRepository;
+import com.example.userservice.repository.UserLookupRepository;
+import com.example.userservice.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserLookupServiceTest {
+
+    private UserRepository userRepository;
+    private UserLookupRepository userLookupRepository;
+    private UserExistenceFilter userExistenceFilter;
+    private UserLookupBackfill userLookupBackfill;
+
+    private UserLookupService service;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        userLookupRepository = mock(UserLookupRepository.class);
+        userExistenceFilter = mock(UserExistenceFilter.class);
+        userLookupBackfill = mock(UserLookupBackfill.class);
+        service = new UserLookupService();
+        ReflectionTestUtils.setField(service, "userRepository", userRepository);
+        ReflectionTestUtils.setField(service, "userLookupRepository", userLookupRepository);
+        ReflectionTestUtils.setField(service, "userExistenceFilter", userExistenceFilter);
+        ReflectionTestUtils.setField(service, "userBatchRepository", mock(UserBatchRepository.class));
+        ReflectionTestUtils.setField(service, "userLookupBackfill", userLookupBackfill);
+        ReflectionTestUtils.setField(service, "enabled", true);
+    }
+
+    @Test
+    void readsUseUsersTableUntilBackfillCompletes() {
+        User alice = user(7L, "alice");
+        when(userRepository.findByUsernameAndIsDeleted("alice", 0)).thenReturn(Optional.of(alice));
+        when(userRepository.existsByUsernameAndIsDeleted("alice", 0)).thenReturn(true);
+
+        assertEquals(Optional.of(alice), service.findActiveByUsername("alice"));
+        assertTrue(service.usernameExists("alice"));
+        verify(userLookupRepository, never()).findUserId(any(), any());
+        verify(userExistenceFilter, never()).mightContain(any(), any());
+    }
+
+    @Test
+    void readsUseLookupIndexAfterBackfillCompletes() {
+        User alice = user(7L, "Alice");
+        when(userLookupBackfill.isComplete()).thenReturn(true);
+        when(userLookupRepository.findUserId(LookupType.USERNAME, "alice")).thenReturn(Optional.of(7L));
+        when(userRepository.findActiveUserById(7L)).thenReturn(Optional.of(alice));
+
+        assertEquals(Optional.of(alice), service.findActiveByUsername("ALICE"));
+        verify(userRepository, never()).findByUsernameAndIsDeleted(any(), any());
+    }
+
+    @Test
+    void writesMaintainLookupIndexDuringBackfill() {
+        User bob = user(8L, "Bob");
+        bob.setEmail("bob@example.com");
+
+        service.index(bob);
+
+        verify(userLookupRepository).insert("USERNAME", "bob", 8L);
+        verify(userLookupRepository).insert("EMAIL", "bob@example.com", 8L);
+        verify(userLookupRepository, never()).insert("PHONE", null, 8L);
+    }
+
+    private static User user(Long userId, String username) {
+        User user = new User();
+        user.setUserId(userId);
+        user.setUsername(username);
+        return user;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.userservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserShardRouterTest {
+
+    @Test
+    void routesLikeHashMod() {
+        UserShardRouter router = new UserShardRouter(2, 2);
+
+        assertEquals("ds0.users_0", router.route(1000L));
+        assertEquals("ds1.users_1", router.route(1001L));
+        // Long.hashCode折叠高32位：2^32 的哈希值为1
+        assertEquals("ds1.users_1", router.route(1L << 32));
+    }
+
+    @Test
+    void groupsKeepInputOrder() {
+        UserShardRouter router = new UserShardRouter(2, 2);
+
+        Map<String, List<Long>> groups = router.group(Arrays.asList(5L, 2L, 3L, 4L));
+
+        assertEquals(Arrays.asList("ds1.users_1", "ds0.users_0"), List.copyOf(groups.keySet()));
+        assertEquals(Arrays.asList(5L, 3L), groups.get("ds1.users_1"));
+        assertEquals(Arrays.asList(2L, 4L), groups.get("ds0.users_0"));
+    }
+
+    @Test
+    void unshardedRoutesEverythingToOneGroup() {
+        UserShardRouter router = new UserShardRouter(1, 1);
+
+        assertEquals(1, router.group(Arrays.asList(1L, 2L, 3L)).size());
+    }
+}
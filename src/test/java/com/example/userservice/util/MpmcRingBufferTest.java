@@ -0,0 +1,81 @@
+package com.example.userservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MpmcRingBufferTest {
+
+    @Test
+    void capacityIsRoundedUpAndOfferFailsWhenFull() {
+        MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(3);
+        assertEquals(4, buffer.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, buffer.poll());
+        }
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void concurrentProducersAndConsumersNeitherLoseNorDuplicate() throws Exception {
+        MpmcRingBuffer<Long> buffer = new MpmcRingBuffer<>(1024);
+        int producers = 4;
+        int consumers = 3;
+        long perProducer = 100_000;
+        AtomicLong consumed = new AtomicLong();
+        AtomicLong sum = new AtomicLong();
+
+        ExecutorService pool = Executors.newFixedThreadPool(producers + consumers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                futures.add(pool.submit(() -> {
+                    for (long i = 1; i <= perProducer; i++) {
+                        while (!buffer.offer(i)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                }));
+            }
+            for (int c = 0; c < consumers; c++) {
+                futures.add(pool.submit(() -> {
+                    while (consumed.get() < producers * perProducer) {
+                        Long value = buffer.poll();
+                        if (value != null) {
+                            sum.addAndGet(value);
+                            consumed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(producers * perProducer, consumed.get());
+        assertEquals(producers * perProducer * (perProducer + 1) / 2, sum.get());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.userservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final long NOW = 1700000000000L;
+
+    @Test
+    void idsEmbedWorkerIdAndTimestamp() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(517, 0L, 1000L, () -> NOW);
+
+        long id = generator.nextId();
+
+        assertEquals(517, SnowflakeIdGenerator.workerIdOf(id));
+        assertEquals(NOW, SnowflakeIdGenerator.timestampOf(id));
+    }
+
+    @Test
+    void idsAreUniqueAndIncreasingUnderContention() throws InterruptedException {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 0L, 1000L);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.execute(() -> {
+                long last = 0;
+                for (int i = 0; i < 20_000; i++) {
+                    long id = generator.nextId();
+                    assertTrue(id > last);
+                    last = id;
+                    ids.add(id);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(160_000, ids.size());
+    }
+
+    @Test
+    void exhaustedSequenceBorrowsNextMillisecond() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 0L, 1000L, () -> NOW);
+
+        long last = 0;
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > last);
+            last = id;
+        }
+        assertTrue(SnowflakeIdGenerator.timestampOf(last) > NOW);
+    }
+
+    @Test
+    void smallClockRollbackIsAbsorbedLargeOneIsRejected() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 0L, 100L, clock::get);
+        long before = generator.nextId();
+
+        clock.set(NOW - 50);
+        assertTrue(generator.nextId() > before);
+
+        clock.set(NOW - 500);
+        assertThrows(IllegalStateException.class, generator::nextId);
+    }
+
+    @Test
+    void notBeforeIsRespectedAfterRestart() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, NOW + 10, 1000L, () -> NOW);
+
+        assertTrue(SnowflakeIdGenerator.timestampOf(generator.nextId()) >= NOW + 10);
+    }
+
+    @Test
+    void expiredLeaseStopsGeneration() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 0L, 1000L, () -> NOW);
+        generator.setValidUntil(NOW - 1);
+
+        assertThrows(IllegalStateException.class, generator::nextId);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.userservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrigramIndexTest {
+
+    @Test
+    void findsSubstringsCaseInsensitivelyNewestFirst() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1L, "Alice");
+        index.put(2L, "malice");
+        index.put(3L, "bob");
+        index.put(4L, "ALI_baba");
+
+        assertArrayEquals(new long[]{2L, 1L}, index.search("lic"));
+        assertArrayEquals(new long[]{4L, 2L, 1L}, index.search("ALI"));
+        assertArrayEquals(new long[]{2L}, index.search("mali"));
+        assertArrayEquals(new long[0], index.search("xyz"));
+    }
+
+    @Test
+    void verifiesCandidatesWhoseTrigramsAreNotContiguous() {
+        TrigramIndex index = new TrigramIndex();
+        // 包含 abc 和 bcd 两个片段，但不包含 abcd
+        index.put(1L, "abcxbcd");
+        index.put(2L, "abcd");
+
+        assertArrayEquals(new long[]{2L}, index.search("abcd"));
+    }
+
+    @Test
+    void shortKeywordsAreRejected() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1L, "ab");
+        index.put(2L, "xaby");
+
+        assertThrows(IllegalArgumentException.class, () -> index.search("ab"));
+        assertThrows(IllegalArgumentException.class, () -> index.search(""));
+        assertArrayEquals(new long[]{2L}, index.search("ABY"));
+    }
+
+    @Test
+    void replaceAndRemoveUpdatePostings() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1L, "alice");
+        index.put(1L, "bob");
+        assertArrayEquals(new long[0], index.search("ali"));
+        assertArrayEquals(new long[]{1L}, index.search("bob"));
+
+        assertTrue(index.remove(1L));
+        assertFalse(index.remove(1L));
+        assertFalse(index.contains(1L));
+        assertEquals(0, index.size());
+        assertArrayEquals(new long[0], index.search("bob"));
+    }
+}